@@ -1,20 +1,61 @@
 package org.mule.maven.exchange.model;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 
 import java.io.*;
 
+/**
+ * Databind based serializer of {@link ExchangeModel}s.
+ * <p>
+ * The {@link ObjectReader}/{@link ObjectWriter}s are built once and shared by every instance, so creating serializers
+ * is cheap and they can be used from several threads (e.g.: parallel builds, IDE embedders). See
+ * {@link StreamingExchangeModelSerializer} for a lighter alternative that doesn't require databind.
+ */
 public class ExchangeModelSerializer {
 
-    private ObjectMapper objectMapper = new ObjectMapper();
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final ObjectReader READER = OBJECT_MAPPER.readerFor(ExchangeModel.class);
+
+    private static final ObjectWriter PRETTY_WRITER = OBJECT_MAPPER.writerFor(ExchangeModel.class).with(SerializationFeature.INDENT_OUTPUT);
+
+    private static final ObjectWriter COMPACT_WRITER = OBJECT_MAPPER.writerFor(ExchangeModel.class).without(SerializationFeature.INDENT_OUTPUT);
+
+    private volatile ObjectWriter writer;
 
     public ExchangeModelSerializer() {
-        objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
+        this(true);
+    }
+
+    /**
+     * @param indent whether the output is pretty printed or not (see APIKIT-1956)
+     */
+    public ExchangeModelSerializer(boolean indent) {
+        this.writer = getObjectWriter(indent);
+    }
+
+    /**
+     * @return the shared, thread safe, reader of {@link ExchangeModel}s
+     */
+    public static ObjectReader getObjectReader() {
+        return READER;
+    }
+
+    /**
+     * @param indent whether the output is pretty printed or not
+     * @return the shared, thread safe, writer of {@link ExchangeModel}s
+     */
+    public static ObjectWriter getObjectWriter(boolean indent) {
+        return indent ? PRETTY_WRITER : COMPACT_WRITER;
     }
 
     public ExchangeModel read(File exchangeFile) throws IOException {
-        return read(new FileInputStream(exchangeFile));
+        try (InputStream inputStream = new FileInputStream(exchangeFile)) {
+            return read(inputStream);
+        }
     }
 
     public ExchangeModel read(InputStream inputStream) throws IOException {
@@ -26,21 +67,21 @@ public class ExchangeModelSerializer {
     }
 
     public ExchangeModel read(Reader reader) throws IOException {
-        return objectMapper.readValue(reader, ExchangeModel.class);
+        return READER.readValue(reader);
     }
 
 
     public void write(ExchangeModel model, File output) throws IOException {
-        objectMapper.writeValue(output, model);
+        writer.writeValue(output, model);
     }
 
 
     public void write(ExchangeModel model, Writer output) throws IOException {
-        objectMapper.writeValue(output, model);
+        writer.writeValue(output, model);
     }
 
     public void write(ExchangeModel model, OutputStream output) throws IOException {
-        objectMapper.writeValue(output, model);
+        writer.writeValue(output, model);
     }
 
     /**
@@ -48,14 +89,12 @@ public class ExchangeModelSerializer {
      * Until it's fixed, or just for backwards compatibility, leave it here.
      * See APIKIT-1956
      *
-     * @param shouldIndent boolean to enable/disable the feature on the mapper side.
+     * @param shouldIndent boolean to enable/disable the feature on this serializer (other instances are not affected).
+     * @deprecated use {@link #ExchangeModelSerializer(boolean)} instead.
      */
+    @Deprecated
     public void indent(boolean shouldIndent){
-        if (shouldIndent) {
-            objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
-        } else {
-            objectMapper.disable(SerializationFeature.INDENT_OUTPUT);
-        }
+        this.writer = getObjectWriter(shouldIndent);
     }
 
 }
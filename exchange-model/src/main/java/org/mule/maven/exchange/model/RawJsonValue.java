@@ -0,0 +1,41 @@
+package org.mule.maven.exchange.model;
+
+import java.util.Objects;
+
+/**
+ * Unparsed JSON object or array kept as an additional property by {@link StreamingExchangeModelSerializer} when lazy
+ * additional properties are enabled, so that large unknown blobs are carried over without being materialized.
+ */
+public class RawJsonValue {
+
+    private final String json;
+
+    public RawJsonValue(String json) {
+        this.json = json;
+    }
+
+    /**
+     * @return the JSON text of the value, as it was in the input (formatting included)
+     */
+    public String getJson() {
+        return json;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RawJsonValue that = (RawJsonValue) o;
+        return Objects.equals(json, that.json);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(json);
+    }
+
+    @Override
+    public String toString() {
+        return json;
+    }
+}
@@ -0,0 +1,386 @@
+package org.mule.maven.exchange.model;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes {@link ExchangeModel}s with the streaming {@link JsonParser}/{@link JsonGenerator} API, avoiding the
+ * class loading and introspection cost of databind, which is paid at the start of every Maven invocation by the
+ * polyglot extension.
+ * <p>
+ * The output is the same as the one of {@link ExchangeModelSerializer}. Properties that are not part of the schema are
+ * kept in the {@code additionalProperties} of each object, either materialized as maps, lists and scalars (as databind
+ * does) or, when {@code lazyAdditionalProperties} is enabled, as opaque {@link RawJsonValue}s: their tokens are
+ * skipped without being decoded and the value keeps the slice of the input they span, so no object tree is built.
+ * <p>
+ * Instances are immutable and thread safe.
+ */
+public class StreamingExchangeModelSerializer {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * Shared pretty printing serializer that keeps unknown properties as {@link RawJsonValue}s.
+     */
+    public static final StreamingExchangeModelSerializer PRETTY = new StreamingExchangeModelSerializer(true, true);
+
+    /**
+     * Shared compact serializer that keeps unknown properties as {@link RawJsonValue}s (see APIKIT-1956).
+     */
+    public static final StreamingExchangeModelSerializer COMPACT = new StreamingExchangeModelSerializer(false, true);
+
+    private final boolean indent;
+
+    private final boolean lazyAdditionalProperties;
+
+    public StreamingExchangeModelSerializer() {
+        this(true, false);
+    }
+
+    /**
+     * @param indent                   whether the output is pretty printed or not (see APIKIT-1956)
+     * @param lazyAdditionalProperties whether unknown properties are kept as {@link RawJsonValue} instead of being
+     *                                 materialized
+     */
+    public StreamingExchangeModelSerializer(boolean indent, boolean lazyAdditionalProperties) {
+        this.indent = indent;
+        this.lazyAdditionalProperties = lazyAdditionalProperties;
+    }
+
+    public ExchangeModel read(File exchangeFile) throws IOException {
+        try (InputStream inputStream = new FileInputStream(exchangeFile)) {
+            return read(inputStream);
+        }
+    }
+
+    public ExchangeModel read(InputStream inputStream) throws IOException {
+        return read(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    public ExchangeModel read(Reader reader) throws IOException {
+        // lazy values are slices of the input, so it's buffered (exchange.json files are small)
+        final String source = lazyAdditionalProperties ? readFully(reader) : null;
+        try (JsonParser parser = source != null ? JSON_FACTORY.createParser(source) : JSON_FACTORY.createParser(reader)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            return readModel(parser, source);
+        }
+    }
+
+    public void write(ExchangeModel model, File output) throws IOException {
+        try (OutputStream outputStream = new FileOutputStream(output)) {
+            write(model, outputStream);
+        }
+    }
+
+    public void write(ExchangeModel model, Writer output) throws IOException {
+        try (JsonGenerator generator = createGenerator(JSON_FACTORY.createGenerator(output))) {
+            writeModel(model, generator);
+        }
+    }
+
+    public void write(ExchangeModel model, OutputStream output) throws IOException {
+        try (JsonGenerator generator = createGenerator(JSON_FACTORY.createGenerator(output))) {
+            writeModel(model, generator);
+        }
+    }
+
+    /**
+     * Materializes an additional property kept as a {@link RawJsonValue} the same way databind does, so that it can be
+     * inspected; any other value is returned as it is.
+     */
+    public Object materialize(Object value) throws IOException {
+        if (!(value instanceof RawJsonValue)) {
+            return value;
+        }
+        try (JsonParser parser = JSON_FACTORY.createParser(((RawJsonValue) value).getJson())) {
+            return readValue(parser, parser.nextToken());
+        }
+    }
+
+    private JsonGenerator createGenerator(JsonGenerator generator) {
+        return indent ? generator.useDefaultPrettyPrinter() : generator;
+    }
+
+    private ExchangeModel readModel(JsonParser parser, String source) throws IOException {
+        final ExchangeModel model = new ExchangeModel();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            final JsonToken value = parser.nextToken();
+            switch (name) {
+                case "main":
+                    model.setMain(readString(parser, value));
+                    break;
+                case "name":
+                    model.setName(readString(parser, value));
+                    break;
+                case "classifier":
+                    model.setClassifier(readString(parser, value));
+                    break;
+                case "tags":
+                    model.setTags(value == JsonToken.VALUE_NULL ? null : readList(parser, value));
+                    break;
+                case "groupId":
+                    model.setGroupId(readString(parser, value));
+                    break;
+                case "assetId":
+                    model.setAssetId(readString(parser, value));
+                    break;
+                case "version":
+                    model.setVersion(readString(parser, value));
+                    break;
+                case "apiVersion":
+                    model.setApiVersion(readString(parser, value));
+                    break;
+                case "dependencies":
+                    model.setDependencies(readDependencies(parser, value, source));
+                    break;
+                case "metadata":
+                    model.setMetadata(readMetadata(parser, value, source));
+                    break;
+                default:
+                    model.setAdditionalProperty(name, readAdditionalProperty(parser, value, source));
+            }
+        }
+        return model;
+    }
+
+    private List<ExchangeDependency> readDependencies(JsonParser parser, JsonToken token, String source) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expect(parser, token, JsonToken.START_ARRAY);
+        final List<ExchangeDependency> dependencies = new ArrayList<>();
+        JsonToken current;
+        while ((current = parser.nextToken()) != JsonToken.END_ARRAY) {
+            dependencies.add(readDependency(parser, current, source));
+        }
+        return dependencies;
+    }
+
+    private ExchangeDependency readDependency(JsonParser parser, JsonToken token, String source) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expect(parser, token, JsonToken.START_OBJECT);
+        final ExchangeDependency dependency = new ExchangeDependency();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            final JsonToken value = parser.nextToken();
+            switch (name) {
+                case "groupId":
+                    dependency.setGroupId(readString(parser, value));
+                    break;
+                case "assetId":
+                    dependency.setAssetId(readString(parser, value));
+                    break;
+                case "version":
+                    dependency.setVersion(readString(parser, value));
+                    break;
+                default:
+                    dependency.setAdditionalProperty(name, readAdditionalProperty(parser, value, source));
+            }
+        }
+        return dependency;
+    }
+
+    private ExchangeMetadata readMetadata(JsonParser parser, JsonToken token, String source) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expect(parser, token, JsonToken.START_OBJECT);
+        final ExchangeMetadata metadata = new ExchangeMetadata();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            final JsonToken value = parser.nextToken();
+            switch (name) {
+                case "projectId":
+                    metadata.setProjectId(readString(parser, value));
+                    break;
+                case "branchId":
+                    metadata.setBranchId(readString(parser, value));
+                    break;
+                case "commitId":
+                    metadata.setCommitId(readString(parser, value));
+                    break;
+                default:
+                    metadata.setAdditionalProperty(name, readAdditionalProperty(parser, value, source));
+            }
+        }
+        return metadata;
+    }
+
+    private String readString(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!token.isScalarValue()) {
+            throw new JsonParseException(parser, String.format("Expected a text value for `%s` but found [%s]", parser.getCurrentName(), token));
+        }
+        return parser.getValueAsString();
+    }
+
+    private Object readAdditionalProperty(JsonParser parser, JsonToken token, String source) throws IOException {
+        if (source != null && token.isStructStart()) {
+            final int start = (int) parser.getTokenLocation().getCharOffset();
+            parser.skipChildren();
+            final int end = (int) parser.getTokenLocation().getCharOffset() + 1;
+            return new RawJsonValue(source.substring(start, end));
+        }
+        return readValue(parser, token);
+    }
+
+    private static String readFully(Reader reader) throws IOException {
+        final StringBuilder result = new StringBuilder();
+        final char[] buffer = new char[8192];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            result.append(buffer, 0, read);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Materializes the current value the same way databind does for untyped properties.
+     */
+    private Object readValue(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case START_OBJECT:
+                final Map<String, Object> map = new LinkedHashMap<>();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    final String name = parser.getCurrentName();
+                    map.put(name, readValue(parser, parser.nextToken()));
+                }
+                return map;
+            case START_ARRAY:
+                return readList(parser, token);
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getNumberValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            default:
+                throw new JsonParseException(parser, String.format("Unexpected token [%s]", token));
+        }
+    }
+
+    private List<Object> readList(JsonParser parser, JsonToken token) throws IOException {
+        expect(parser, token, JsonToken.START_ARRAY);
+        final List<Object> list = new ArrayList<>();
+        JsonToken current;
+        while ((current = parser.nextToken()) != JsonToken.END_ARRAY) {
+            list.add(readValue(parser, current));
+        }
+        return list;
+    }
+
+    private void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new JsonParseException(parser, String.format("Expected [%s] but found [%s]", expected, actual));
+        }
+    }
+
+    private void writeModel(ExchangeModel model, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        writeString(generator, "main", model.getMain());
+        writeString(generator, "name", model.getName());
+        writeString(generator, "classifier", model.getClassifier());
+        if (model.getTags() != null) {
+            generator.writeFieldName("tags");
+            writeValue(generator, model.getTags());
+        }
+        writeString(generator, "groupId", model.getGroupId());
+        writeString(generator, "assetId", model.getAssetId());
+        writeString(generator, "version", model.getVersion());
+        writeString(generator, "apiVersion", model.getApiVersion());
+        if (model.getDependencies() != null) {
+            generator.writeArrayFieldStart("dependencies");
+            for (ExchangeDependency dependency : model.getDependencies()) {
+                writeDependency(dependency, generator);
+            }
+            generator.writeEndArray();
+        }
+        if (model.getMetadata() != null) {
+            generator.writeFieldName("metadata");
+            writeMetadata(model.getMetadata(), generator);
+        }
+        writeAdditionalProperties(generator, model.getAdditionalProperties());
+        generator.writeEndObject();
+    }
+
+    private void writeDependency(ExchangeDependency dependency, JsonGenerator generator) throws IOException {
+        if (dependency == null) {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartObject();
+        writeString(generator, "groupId", dependency.getGroupId());
+        writeString(generator, "assetId", dependency.getAssetId());
+        writeString(generator, "version", dependency.getVersion());
+        writeAdditionalProperties(generator, dependency.getAdditionalProperties());
+        generator.writeEndObject();
+    }
+
+    private void writeMetadata(ExchangeMetadata metadata, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        writeString(generator, "projectId", metadata.getProjectId());
+        writeString(generator, "branchId", metadata.getBranchId());
+        writeString(generator, "commitId", metadata.getCommitId());
+        writeAdditionalProperties(generator, metadata.getAdditionalProperties());
+        generator.writeEndObject();
+    }
+
+    private void writeString(JsonGenerator generator, String name, String value) throws IOException {
+        if (value != null) {
+            generator.writeStringField(name, value);
+        }
+    }
+
+    private void writeAdditionalProperties(JsonGenerator generator, Map<String, Object> additionalProperties) throws IOException {
+        for (Map.Entry<String, Object> entry : additionalProperties.entrySet()) {
+            generator.writeFieldName(entry.getKey());
+            writeValue(generator, entry.getValue());
+        }
+    }
+
+    private void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value instanceof RawJsonValue) {
+            // re-parsed rather than written raw, so that it honors the indentation of the generator
+            try (JsonParser parser = JSON_FACTORY.createParser(((RawJsonValue) value).getJson())) {
+                parser.nextToken();
+                generator.copyCurrentStructure(parser);
+            }
+        } else if (value instanceof Map) {
+            generator.writeStartObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                generator.writeFieldName(String.valueOf(entry.getKey()));
+                writeValue(generator, entry.getValue());
+            }
+            generator.writeEndObject();
+        } else if (value instanceof List) {
+            generator.writeStartArray();
+            for (Object item : (List<?>) value) {
+                writeValue(generator, item);
+            }
+            generator.writeEndArray();
+        } else {
+            generator.writeObject(value);
+        }
+    }
+
+}
@@ -1,6 +1,9 @@
 package org.mule.maven.exchange.utils;
 
 import java.io.File;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 public class ApiProjectConstants {
 
@@ -12,7 +15,47 @@ public class ApiProjectConstants {
     public static final String MAVEN_SKIP_REST_CONNECT = "exchange.maven.restConnect.skip";
     public static final String REST_CONNECT_OUTPUTDIR = "rest_connect_workdir";
 
+    /**
+     * property of the exchange.json with the main files of the specs bundled along with the "main" one
+     */
+    public static final String ADDITIONAL_MAINS = "additionalMains";
+
     public static File getFatApiDirectory(File buildDirectory) {
         return new File(buildDirectory, API_EXPANDED);
     }
+
+    /**
+     * @return an identifier of the spec of an additional main file, made of its path without the extension (e.g.:
+     * {@code v2-api-oas} for {@code v2/Api OAS.yaml})
+     */
+    public static String getSpecId(String mainFile) {
+        final int extension = mainFile.lastIndexOf('.');
+        final String path = extension > 0 ? mainFile.substring(0, extension) : mainFile;
+        return path.toLowerCase().replaceAll("[^a-z0-9]+", "-").replaceAll("^-|-$", "");
+    }
+
+    /**
+     * Checks that no two additional main files have the same spec id (e.g.: {@code v2/api.raml} and {@code v2/api.yaml}),
+     * as they would share the connector and its working directory.
+     *
+     * @throws IllegalArgumentException naming the main files that collide
+     */
+    public static void checkSpecIds(Collection<String> additionalMains) {
+        final Map<String, String> mainsBySpecId = new HashMap<>();
+        for (String additionalMain : additionalMains) {
+            final String specId = getSpecId(additionalMain);
+            final String previous = mainsBySpecId.putIfAbsent(specId, additionalMain);
+            if (previous != null && !previous.equals(additionalMain)) {
+                throw new IllegalArgumentException(String.format("Additional main files [%s] and [%s] have the same spec id [%s], rename one of them",
+                        previous, additionalMain, specId));
+            }
+        }
+    }
+
+    /**
+     * @return the directory, within the build directory, where the connector of an additional main file is generated
+     */
+    public static String getRestConnectOutputDir(String additionalMain) {
+        return REST_CONNECT_OUTPUTDIR + "-" + getSpecId(additionalMain);
+    }
 }
@@ -0,0 +1,93 @@
+package org.mule.maven.exchange;
+
+import amf.apicontract.client.platform.AMFBaseUnitClient;
+import amf.apicontract.client.platform.AMFConfiguration;
+import amf.apicontract.client.platform.WebAPIConfiguration;
+import amf.core.internal.remote.Spec;
+import org.codehaus.plexus.component.annotations.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * AMF configurations shared by every module of the build, so that AMF (its Scala runtime, vocabularies and validation
+ * profiles) is initialized once instead of once per module.
+ * <p>
+ * It's a singleton within the realm of the plugin, so it lives as long as the build session (and across builds for
+ * embedders that cache the plugin realm). Initialization starts in the background on the first {@link #warmUp()},
+ * which validate-api calls once it knows the API is validated in the build JVM (not skipped as unchanged nor sent to
+ * the validation daemon), so that it overlaps with the setup of the resources of the API; builds that don't validate
+ * in process never pay for it.
+ * <p>
+ * AMF configurations are immutable, so they can be handed out to modules built concurrently (-T): each module derives
+ * its own configuration from them (e.g.: {@link AMFConfiguration#withResourceLoader}) and its own clients.
+ */
+@Component(role = AmfEngine.class)
+public class AmfEngine {
+
+    /**
+     * initialization of AMF, null until it's started or after it failed
+     */
+    private CompletableFuture<AMFConfiguration> configuration;
+
+    private final Map<String, AMFConfiguration> validationConfigurations = new ConcurrentHashMap<>();
+
+    /**
+     * Starts initializing AMF in the background, unless it was already started.
+     */
+    public void warmUp() {
+        start();
+    }
+
+    /**
+     * @return the configuration to parse any web API with, starting the initialization if it wasn't and waiting for it
+     * if it's still running
+     * @throws ExecutionException if AMF couldn't be initialized, the next call tries again
+     */
+    public AMFConfiguration getConfiguration() throws InterruptedException, ExecutionException {
+        return start().get();
+    }
+
+    /**
+     * @return a client to validate the models of the given {@code spec}, its configuration is created once per spec
+     */
+    public AMFBaseUnitClient getValidationClient(Spec spec) {
+        return validationConfigurations.computeIfAbsent(spec.id(), id -> WebAPIConfiguration.fromSpec(spec)).baseUnitClient();
+    }
+
+    /**
+     * @return whether AMF is already initialized
+     */
+    public synchronized boolean isReady() {
+        return configuration != null && configuration.isDone() && !configuration.isCompletedExceptionally();
+    }
+
+    private synchronized CompletableFuture<AMFConfiguration> start() {
+        if (configuration == null) {
+            final CompletableFuture<AMFConfiguration> result = new CompletableFuture<>();
+            final Thread warmUp = new Thread(() -> {
+                try {
+                    final AMFConfiguration amfConfiguration = WebAPIConfiguration.WebAPI();
+                    amfConfiguration.baseUnitClient();
+                    result.complete(amfConfiguration);
+                } catch (Throwable e) {
+                    // the failure is reported to the ones waiting for it, but not kept for the rest of the session
+                    reset(result);
+                    result.completeExceptionally(e);
+                }
+            }, "exchange-amf-warm-up");
+            warmUp.setDaemon(true);
+            warmUp.start();
+            configuration = result;
+        }
+        return configuration;
+    }
+
+    private synchronized void reset(CompletableFuture<AMFConfiguration> failed) {
+        if (configuration == failed) {
+            configuration = null;
+        }
+    }
+}
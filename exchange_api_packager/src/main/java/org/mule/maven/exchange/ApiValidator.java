@@ -0,0 +1,102 @@
+package org.mule.maven.exchange;
+
+import amf.apicontract.client.platform.AMFConfiguration;
+import amf.core.client.platform.AMFParseResult;
+import amf.core.client.platform.model.document.BaseUnit;
+import amf.core.client.platform.validation.AMFValidationReport;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses and validates API documents with a given configuration, according to a {@link ValidationMode}.
+ * <p>
+ * It holds no state of its own, so one validator can be used by several threads as long as its configuration (and
+ * resource loader) can.
+ */
+class ApiValidator {
+
+    private final AmfEngine amfEngine;
+
+    private final AMFConfiguration configuration;
+
+    private final ValidationMode mode;
+
+    /**
+     * @param configuration configuration to parse the documents with, validation configurations come from the engine
+     */
+    ApiValidator(AmfEngine amfEngine, AMFConfiguration configuration, ValidationMode mode) {
+        this.amfEngine = amfEngine;
+        this.configuration = configuration;
+        this.mode = mode;
+    }
+
+    Result validate(File file) throws InterruptedException, ExecutionException, UnsupportedEncodingException {
+        final String fileURL = URLDecoder.decode(file.toURI().toString(), "UTF-8");
+        final long parseStart = System.nanoTime();
+        final AMFParseResult parseResult = configuration.baseUnitClient().parse(fileURL).get();
+        final long parseMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - parseStart);
+        if (!parseResult.conforms()) {
+            return new Result(file, false, parseResult.toString(), parseMillis, -1);
+        }
+        final BaseUnit baseUnit = parseResult.baseUnit();
+        if (!mode.validates()) {
+            return new Result(file, true, "", parseMillis, -1);
+        }
+        final long validationStart = System.nanoTime();
+        final AMFValidationReport validationReport = amfEngine.getValidationClient(baseUnit.sourceSpec().get()).validate(baseUnit).get();
+        final long validationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - validationStart);
+        return new Result(file, mode.conforms(validationReport), validationReport.conforms() ? "" : validationReport.toString(), parseMillis, validationMillis);
+    }
+
+    static class Result {
+
+        private final File file;
+
+        private final boolean conforms;
+
+        private final String report;
+
+        private final long parseMillis;
+
+        private final long validationMillis;
+
+        Result(File file, boolean conforms, String report, long parseMillis, long validationMillis) {
+            this.file = file;
+            this.conforms = conforms;
+            this.report = report;
+            this.parseMillis = parseMillis;
+            this.validationMillis = validationMillis;
+        }
+
+        File getFile() {
+            return file;
+        }
+
+        boolean conforms() {
+            return conforms;
+        }
+
+        /**
+         * @return the report of the parsing or the validation, empty if it had no results (it has warnings when the
+         * document conforms anyway)
+         */
+        String getReport() {
+            return report;
+        }
+
+        long getParseMillis() {
+            return parseMillis;
+        }
+
+        /**
+         * @return the milliseconds taken by the validation, negative if it didn't run
+         */
+        long getValidationMillis() {
+            return validationMillis;
+        }
+    }
+}
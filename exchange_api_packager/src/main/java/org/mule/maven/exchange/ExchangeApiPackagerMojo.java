@@ -1,9 +1,7 @@
 package org.mule.maven.exchange;
 
 import org.apache.commons.io.filefilter.TrueFileFilter;
-import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
-import org.apache.maven.plugin.BuildPluginManager;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Component;
@@ -15,16 +13,17 @@ import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.MavenProjectHelper;
 import org.mule.maven.exchange.model.ExchangeModel;
-import org.mule.maven.exchange.model.ExchangeModelSerializer;
+import org.mule.maven.exchange.model.StreamingExchangeModelSerializer;
+import org.mule.maven.exchange.utils.ArchiveIO;
+import org.mule.maven.exchange.utils.InputManifest;
+import org.mule.maven.exchange.utils.ParallelZipWriter;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileFilter;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
+import static org.mule.maven.exchange.utils.ApiProjectConstants.EXCHANGE_MODULES;
 import static org.mule.maven.exchange.utils.ApiProjectConstants.getFatApiDirectory;
 
 @Mojo(name = "package-api", defaultPhase = LifecyclePhase.PACKAGE, requiresDependencyCollection = ResolutionScope.COMPILE_PLUS_RUNTIME, requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME)
@@ -34,6 +33,8 @@ public class ExchangeApiPackagerMojo extends AbstractMojo {
 
     private static final String EXCHANGE_JSON = "exchange.json";
 
+    private static final String INPUT_MANIFEST = "package-api.manifest";
+
     /**
      * Injected by Maven so that forked process can be
      * launched from the working directory of current maven project in a multi-module build.  Should not be user facing.
@@ -41,35 +42,94 @@ public class ExchangeApiPackagerMojo extends AbstractMojo {
     @Component
     private MavenProject project;
 
-    @Component
-    private MavenSession mavenSession;
-
-    @Component
-    private BuildPluginManager pluginManager;
-
     @Component
     protected MavenProjectHelper helper;
 
     @Parameter(defaultValue = "raml")
     private String classifier;
 
+    /**
+     * when enabled, the zips are only generated if any of the API sources (or the full API) changed since the last
+     * execution, otherwise the existing ones are attached as they are
+     */
+    @Parameter(property = "exchange.package.incremental", defaultValue = "true")
+    private boolean incremental;
+
+    /**
+     * when enabled, the incremental build also compares the content of every input file instead of just relying on
+     * its size and last modification time
+     */
+    @Parameter(property = "exchange.package.incremental.hash", defaultValue = "false")
+    private boolean incrementalHash;
+
+    /**
+     * number of threads used to compress the fat API zip, defaults to the number of available processors (use 1 to
+     * compress it sequentially)
+     */
+    @Parameter(property = "exchange.package.threads", defaultValue = "0")
+    private int zipThreads;
+
+    /**
+     * when enabled, both zips are generated in a single pass: every API source is read and compressed once and then
+     * written to both of them, only the dependencies ({@code exchange_modules}) are taken from the fat API directory.
+     * Otherwise, each zip is generated from its own directory.
+     */
+    @Parameter(property = "exchange.package.singlePass", defaultValue = "true")
+    private boolean singlePass;
+
 
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
         final File sourceDirectory = new File(project.getBuild().getSourceDirectory());
         final File buildDirectory = new File(project.getBuild().getDirectory());
         final File apiZip = new File(buildDirectory, getFileName());
-        createZip(sourceDirectory, new ApiSourceFileFilter(sourceDirectory, buildDirectory), apiZip);
-        //create simple zip
-        helper.attachArtifact(project, getType(), getClassifier(), apiZip);
-
-        //create full zip
         final String fatFileName = getFatFileName(project, getClassifier(), getType());
         final File fatApiZip = new File(buildDirectory, fatFileName);
-        createZip(getFatApiDirectory(buildDirectory), TrueFileFilter.INSTANCE, fatApiZip);
+        final ApiSourceFileFilter sourceFileFilter = new ApiSourceFileFilter(sourceDirectory, buildDirectory);
+
+        final File manifestFile = new File(buildDirectory, INPUT_MANIFEST);
+        final InputManifest manifest = incremental ? createInputManifest(sourceDirectory, sourceFileFilter, buildDirectory) : null;
+        if (manifest != null && manifest.withOutputs(apiZip, fatApiZip).matches(manifestFile)) {
+            getLog().info(String.format("API sources didn't change since the last build, reusing [%s] and [%s]", apiZip.getName(), fatApiZip.getName()));
+        } else {
+            if (singlePass) {
+                //create simple and full zip at once
+                createZips(sourceDirectory, sourceFileFilter, getFatApiDirectory(buildDirectory), apiZip, fatApiZip);
+            } else {
+                //create simple zip
+                createZip(sourceDirectory, sourceFileFilter, apiZip, 1);
+                //create full zip
+                createZip(getFatApiDirectory(buildDirectory), TrueFileFilter.INSTANCE, fatApiZip, getZipThreads());
+            }
+            if (manifest != null) {
+                try {
+                    manifest.withOutputs(apiZip, fatApiZip).save(manifestFile);
+                } catch (IOException e) {
+                    getLog().warn(String.format("Unable to store the input manifest [%s], next build won't be incremental", manifestFile.getAbsolutePath()));
+                }
+            }
+        }
+        helper.attachArtifact(project, getType(), getClassifier(), apiZip);
         helper.attachArtifact(project, getType(), createFatClassifier(getClassifier()), fatApiZip);
     }
 
+    /**
+     * @return a manifest with every input of the zips: the sources accepted by the {@link ApiSourceFileFilter}, the
+     * whole fat API directory and the options that alter the output
+     * @throws MojoExecutionException if any of the inputs can't be read
+     */
+    private InputManifest createInputManifest(File sourceDirectory, FileFilter sourceFileFilter, File buildDirectory) throws MojoExecutionException {
+        try {
+            return new InputManifest(incrementalHash)
+                    .addOption("classifier", getClassifier())
+                    .addOption("finalName", project.getBuild().getFinalName())
+                    .addDirectory("sources", sourceDirectory, sourceFileFilter)
+                    .addDirectory("fatApi", getFatApiDirectory(buildDirectory), TrueFileFilter.INSTANCE);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Exception while reading the API sources", e);
+        }
+    }
+
     /**
      * Provides the name of the ZIP file that has the self contained API (with all of its dependencies)
      *
@@ -86,17 +146,34 @@ public class ExchangeApiPackagerMojo extends AbstractMojo {
         return "fat-" + classifier;
     }
 
-    private void createZip(File sourceDir, FileFilter fileFilter, File zipFile) throws MojoExecutionException {
-        try {
-            try (FileOutputStream fileWriter = new FileOutputStream(zipFile);
-                 ZipOutputStream zip = new ZipOutputStream(fileWriter)) {
-                addZipEntries(sourceDir, fileFilter, zip, null);
-            }
+    private void createZip(File sourceDir, FileFilter fileFilter, File zipFile, int threads) throws MojoExecutionException {
+        try (ParallelZipWriter zip = new ParallelZipWriter(zipFile, threads)) {
+            addParallelZipEntries(sourceDir, fileFilter, zip, null);
+            zip.finish();
         } catch (IOException e) {
             throw new MojoExecutionException("Exception while generating zip file", e);
         }
     }
 
+    /**
+     * Generates the simple and the fat zip in a single pass over the sources, as the fat API directory is just a copy
+     * of them (see {@link FullApiGeneratorMojo}) plus the {@code exchange_modules} of the dependencies.
+     */
+    private void createZips(File sourceDir, FileFilter fileFilter, File fatApiDirectory, File apiZip, File fatApiZip) throws MojoExecutionException {
+        try (ParallelZipWriter zip = new ParallelZipWriter(getZipThreads(), apiZip, fatApiZip)) {
+            addParallelZipEntries(sourceDir, fileFilter, zip, null);
+            // dependencies only go to the fat zip, the second archive of the writer
+            addParallelZipEntries(new File(fatApiDirectory, EXCHANGE_MODULES), TrueFileFilter.INSTANCE, zip, EXCHANGE_MODULES, 1);
+            zip.finish();
+        } catch (IOException e) {
+            throw new MojoExecutionException("Exception while generating zip file", e);
+        }
+    }
+
+    private int getZipThreads() {
+        return zipThreads > 0 ? zipThreads : Runtime.getRuntime().availableProcessors();
+    }
+
     public String getType() {
         return "zip";
     }
@@ -105,28 +182,21 @@ public class ExchangeApiPackagerMojo extends AbstractMojo {
         return classifier;
     }
 
-    private void addZipEntries(File sourceDir, FileFilter fileFilter, ZipOutputStream zip, String basePath) throws IOException {
-        final File[] files = sourceDir.listFiles(fileFilter);
-        if (files != null) {
-            for (File file : files) {
-                final String name = basePath != null ? basePath + "/" + file.getName() : file.getName();
-                if (file.isDirectory()) {
-                    addZipEntries(file, fileFilter, zip, name);
-                } else {
-                    // hack due to apikits issues while reading exchange.json file.
-                    file = tamperFileIfExchangeJson(file);
-                    try (FileInputStream in = new FileInputStream(file)) {
-                        final byte[] buf = new byte[1024];
-                        zip.putNextEntry(new ZipEntry(name));
-                        int len;
-                        while ((len = in.read(buf)) > 0) {
-                            zip.write(buf, 0, len);
-                        }
-                        zip.closeEntry();
-                    }
-                }
+    /**
+     * @param archiveIndexes archives of the {@code zip} where the entries are added, all of them if none is specified
+     */
+    private void addParallelZipEntries(File sourceDir, FileFilter fileFilter, ParallelZipWriter zip, String basePath, int... archiveIndexes) throws IOException {
+        ArchiveIO.walk(sourceDir, fileFilter, basePath, (name, file) -> {
+            // hack due to apikits issues while reading exchange.json file.
+            final byte[] compactExchangeJson = compactIfExchangeJson(file);
+            if (compactExchangeJson != null) {
+                zip.addEntry(name, compactExchangeJson, file.lastModified(), archiveIndexes);
+            } else if (archiveIndexes.length == 0) {
+                zip.addEntry(name, file);
+            } else {
+                zip.addEntry(name, file, archiveIndexes);
             }
-        }
+        });
     }
 
     /**
@@ -135,18 +205,18 @@ public class ExchangeApiPackagerMojo extends AbstractMojo {
      * See APIKIT-1956
      *
      * @param file file to check weather it's exchange.json or not.
-     * @return the same input {@code file} if it wasn't the exchange.json file. Otherwise, it reads the full content and
-     * removes all the spaces by using the serializer. In case anything fails, it falls back to the original file.
+     * @return null if the {@code file} wasn't the exchange.json file, so that it's zipped as is. Otherwise, it reads the
+     * full content and removes all the spaces by serializing it in memory. In case anything fails, it also returns null
+     * to fall back to the original file.
      */
-    private File tamperFileIfExchangeJson(File file) {
+    private byte[] compactIfExchangeJson(File file) {
         if (file.getName().equals(EXCHANGE_JSON)) {
             try {
-                final ExchangeModelSerializer objectMapper = new ExchangeModelSerializer();
-                objectMapper.indent(false);
+                final StreamingExchangeModelSerializer objectMapper = StreamingExchangeModelSerializer.COMPACT;
                 final ExchangeModel model = objectMapper.read(file);
-                final File temporal_exchange = File.createTempFile("temporal_exchange", ".json");
-                objectMapper.write(model, temporal_exchange);
-                return temporal_exchange;
+                final ByteArrayOutputStream compact = new ByteArrayOutputStream((int) file.length());
+                objectMapper.write(model, compact);
+                return compact.toByteArray();
             } catch (IOException e) {
                 //fail silently, returning the original file
                 if (getLog().isDebugEnabled()){
@@ -156,9 +226,8 @@ public class ExchangeApiPackagerMojo extends AbstractMojo {
                     e.printStackTrace();
                 }
             }
-            return file;
         }
-        return file;
+        return null;
     }
 
     protected String getFileName() {
@@ -1,147 +1,206 @@
 package org.mule.maven.exchange;
 
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.lang.StringUtils;
-import org.apache.maven.execution.MavenSession;
-import org.apache.maven.model.Dependency;
 import org.apache.maven.plugin.AbstractMojo;
-import org.apache.maven.plugin.BuildPluginManager;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.*;
 import org.apache.maven.project.MavenProject;
+import org.mule.maven.exchange.utils.ArchiveIO;
+import org.mule.maven.exchange.utils.DependencyLayout;
+import org.mule.maven.exchange.utils.ExtractionStamp;
+import org.mule.maven.exchange.utils.FragmentCache;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
 
 import static org.mule.maven.exchange.utils.ApiProjectConstants.*;
-import static org.twdata.maven.mojoexecutor.MojoExecutor.*;
 
 @Mojo(name = "generate-full-api", defaultPhase = LifecyclePhase.GENERATE_SOURCES, requiresDependencyCollection = ResolutionScope.COMPILE_PLUS_RUNTIME, requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME)
 @Execute(goal = "generate-full-api")
 public class FullApiGeneratorMojo extends AbstractMojo {
 
 
+    /**
+     * directory, within the build one, with the {@link ExtractionStamp stamps} of the extracted dependencies
+     */
+    private static final String DEPENDENCY_STAMPS = "exchange-modules.stamps";
+
     @Component
     private MavenProject project;
 
-    @Component
-    private MavenSession mavenSession;
-
-    @Component
-    private BuildPluginManager pluginManager;
+    /**
+     * number of threads used to extract the dependencies, defaults to the number of available processors (use 1 to
+     * extract them sequentially)
+     */
+    @Parameter(property = "exchange.fullApi.threads", defaultValue = "0")
+    private int unzipThreads;
+
+    /**
+     * machine wide cache of extracted fragments, shared by every project, so that each dependency zip is extracted only
+     * once and then hard linked (or copied) into the {@code exchange_modules} of each project
+     */
+    @Parameter(property = "exchange.fullApi.fragmentCache.directory", defaultValue = "${user.home}/.m2/exchange-fragment-cache")
+    private File fragmentCacheDirectory;
+
+    /**
+     * extract the dependencies straight into the project, without going through the fragment cache
+     */
+    @Parameter(property = "exchange.fullApi.fragmentCache.skip", defaultValue = "false")
+    private boolean skipFragmentCache;
+
+    /**
+     * skip the dependencies that didn't change since the previous build, and only write the entries that changed for
+     * the rest of them
+     */
+    @Parameter(property = "exchange.fullApi.incremental", defaultValue = "true")
+    private boolean incremental;
 
 
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
-
-        //Download transitive dependencies
-
-        executeMojo(
-                plugin(
-                        groupId("org.apache.maven.plugins"),
-                        artifactId("maven-dependency-plugin"),
-                        version("2.0")
-                ),
-                goal("copy-dependencies"),
-                configuration(
-                        element(name("outputDirectory"), "${project.build.directory}/" + MAVEN_SKIP_REST_CONNECT),
-                        element(name("useRepositoryLayout"), "true")
-                ),
-                executionEnvironment(
-                        project,
-                        mavenSession,
-                        pluginManager
-                )
-        );
-
         final File buildDirectory = new File(project.getBuild().getDirectory());
         final File fullApiDirectory = getFatApiDirectory(buildDirectory);
         final File sourceDirectory = new File(project.getBuild().getSourceDirectory());
-        final String targetRootPath = fullApiDirectory.getPath() + File.separator + EXCHANGE_MODULES;
-        final List<Dependency> projectDependencies = getDependenciesWithPotencialBadFormedPath();
 
+        unzipDependencies(new File(fullApiDirectory, EXCHANGE_MODULES));
         try {
-            unzipDependenciesAndCopyTo(new File(buildDirectory, MAVEN_SKIP_REST_CONNECT), new File(fullApiDirectory, EXCHANGE_MODULES), targetRootPath, projectDependencies);
-            FileUtils.copyDirectory(sourceDirectory, fullApiDirectory, new ApiSourceFileFilter(sourceDirectory, buildDirectory), true);
+            ArchiveIO.copyDirectory(sourceDirectory, fullApiDirectory, new ApiSourceFileFilter(sourceDirectory, buildDirectory), true);
         } catch (IOException e) {
             throw new MojoExecutionException("Exception while trying to copy sources for `exchange-generate-full-api`", e);
         }
 
     }
 
-    private void unzipDependenciesAndCopyTo(File sourceFile, File targetFile, String targetRootPath, List<Dependency> projectDependencies) throws MojoExecutionException {
-        try {
+    /**
+     * Extracts every resolved dependency zip (the transitive ones included) straight from where Maven resolved it into
+     * {@code exchange_modules/<groupId>/<assetId>/<version>}, concurrently. Zips extracted into the same directory (or
+     * into nested ones) might overwrite each other's files, so they are grouped and extracted sequentially, in
+     * resolution order, which makes the result identical to a sequential extraction.
+     */
+    private void unzipDependencies(File exchangeModulesDirectory) throws MojoExecutionException {
+        final List<Extraction> extractions = new ArrayList<>();
+        for (DependencyLayout.Module module : DependencyLayout.of(project.getArtifacts()).getModules()) {
+            final File unzipDirectory = new File(exchangeModulesDirectory, module.getPath().replace('/', File.separatorChar));
+            extractions.add(new Extraction(module, unzipDirectory.getAbsoluteFile()));
+        }
 
-            if (sourceFile.isDirectory()) {
-                File[] listFiles = sourceFile.listFiles();
-                if (listFiles != null) {
-                    for (File childFile : listFiles) {
-                        unzipDependenciesAndCopyTo(childFile, new File(targetFile, childFile.getName()), targetRootPath, projectDependencies);
-                    }
-                }
-            } else if (sourceFile.isFile() && sourceFile.getName().endsWith(".zip")) {
-
-                Optional<String> fixedPath = getFixedPath(projectDependencies, targetFile, targetRootPath);
-                File targetDirectory = targetFile.getParentFile();
-
-               if(fixedPath.isPresent()){
-                   targetDirectory = new File(fixedPath.get());
-               }
-
-                targetDirectory.mkdirs();
-                byte[] buffer = new byte[1024];
-                try (ZipInputStream zis = new ZipInputStream(new FileInputStream(sourceFile))) {
-
-                    ZipEntry zipEntry = zis.getNextEntry();
-                    while (zipEntry != null) {
-                        File newFile = new File(targetDirectory, zipEntry.getName());
-                        if(zipEntry.isDirectory()){
-                            newFile.mkdir();
-                        }else{
-                            try (FileOutputStream fos = new FileOutputStream(newFile)) {
-                                int len;
-                                while ((len = zis.read(buffer)) > 0) {
-                                    fos.write(buffer, 0, len);
-                                }
-                            }
-                        }
-                        zipEntry = zis.getNextEntry();
+        // sorted by path, a directory is immediately followed by the ones nested in it, which share its group
+        final TreeMap<String, Integer> groupIndexes = new TreeMap<>();
+        for (Extraction extraction : extractions) {
+            groupIndexes.put(extraction.directory.getPath() + File.separator, 0);
+        }
+        String groupDirectory = null;
+        int groupCount = 0;
+        for (Map.Entry<String, Integer> directory : groupIndexes.entrySet()) {
+            if (groupDirectory == null || !directory.getKey().startsWith(groupDirectory)) {
+                groupDirectory = directory.getKey();
+                groupCount++;
+            }
+            directory.setValue(groupCount - 1);
+        }
+        final List<List<Extraction>> groups = new ArrayList<>(groupCount);
+        for (int i = 0; i < groupCount; i++) {
+            groups.add(new ArrayList<>());
+        }
+        for (Extraction extraction : extractions) {
+            groups.get(groupIndexes.get(extraction.directory.getPath() + File.separator)).add(extraction);
+        }
+        if (groups.isEmpty()) {
+            return;
+        }
+
+        final File stampsDirectory = incremental ? new File(project.getBuild().getDirectory(), DEPENDENCY_STAMPS) : null;
+        final FragmentCache fragmentCache = fragmentCacheDirectory != null && !skipFragmentCache ? new FragmentCache(fragmentCacheDirectory) : null;
+        final int threads = Math.min(groups.size(), unzipThreads > 0 ? unzipThreads : Runtime.getRuntime().availableProcessors());
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>(groups.size());
+            for (List<Extraction> group : groups) {
+                futures.add(executor.submit(() -> {
+                    for (Extraction extraction : group) {
+                        unzip(extraction, fragmentCache, stampsDirectory);
                     }
-                    zis.closeEntry();
-                }
+                    return null;
+                }));
             }
-        } catch (IOException e) {
-            throw new MojoExecutionException("Unable to unzip " + sourceFile.getAbsolutePath(), e);
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while extracting the dependencies", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof MojoExecutionException) {
+                throw (MojoExecutionException) e.getCause();
+            }
+            throw new MojoExecutionException("Exception while extracting the dependencies", e.getCause());
+        } finally {
+            executor.shutdownNow();
         }
     }
 
-    private Optional<String> getFixedPath(List<Dependency> projectDependencies, File targetFile, String targetRootPath){
-        for(Dependency p : projectDependencies) {
-            String groupIdPath = StringUtils.replace(p.getGroupId(), ".", File.separator);
-            String partGavPath = File.separator  + p.getArtifactId() + File.separator + p.getVersion();
-            String gavPath = groupIdPath + partGavPath;
+    private void unzip(Extraction extraction, FragmentCache fragmentCache, File stampsDirectory) throws MojoExecutionException {
+        final DependencyLayout.Module module = extraction.module;
+        try {
+            final String checksum = ArchiveIO.sha256(extraction.archive);
+            Predicate<String> entryFilter = name -> true;
+            ExtractionStamp stamp = null;
+            File stampFile = null;
+            if (stampsDirectory != null) {
+                stampFile = new File(stampsDirectory, module.getPath().replace('/', File.separatorChar) + File.separator + extraction.archive.getName() + ".stamp");
+                final ExtractionStamp previous = ExtractionStamp.read(stampFile);
+                final boolean sameArchive = previous != null && previous.getChecksum().equals(checksum);
+                if (sameArchive && previous.isExtractedIn(extraction.directory)) {
+                    getLog().debug(String.format("Dependency [%s] didn't change since the last build, skipping its extraction", module));
+                    return;
+                }
+                stamp = sameArchive ? previous : ExtractionStamp.of(extraction.archive, checksum);
+                final Set<String> changedEntries = new HashSet<>(stamp.getChangedEntries(previous, extraction.directory));
+                for (String removedEntry : stamp.getRemovedEntries(previous)) {
+                    Files.deleteIfExists(new File(extraction.directory, removedEntry).toPath());
+                }
+                entryFilter = changedEntries::contains;
+            }
+
+            if (fragmentCache != null) {
+                fragmentCache.extract(module.getGroupId(), module.getAssetId(), module.getVersion(),
+                        extraction.archive, checksum, extraction.directory, entryFilter);
+            } else if (stamp != null) {
+                ArchiveIO.unzip(extraction.archive, extraction.directory, entryFilter);
+            } else {
+                ArchiveIO.unzip(extraction.archive, extraction.directory);
+            }
 
-            if(StringUtils.endsWith(targetFile.getParentFile().getPath(), gavPath)){
-                return Optional.of(targetRootPath + File.separator + p.getGroupId() + partGavPath);
+            if (stamp != null) {
+                stamp.save(stampFile, extraction.directory);
             }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to unzip " + extraction.archive.getAbsolutePath(), e);
         }
-        return Optional.empty();
-
     }
 
-    private List<Dependency> getDependenciesWithPotencialBadFormedPath(){
-        Stream<Dependency> collect = project.getDependencies().stream().filter(d -> StringUtils.containsAny(((Dependency) d).getGroupId(), "."));
-        List<Dependency> depWithDotsInGroupId = collect.collect(Collectors.toList());
-        return depWithDotsInGroupId;
+    private static class Extraction {
+
+        final DependencyLayout.Module module;
+        final File archive;
+        final File directory;
+
+        Extraction(DependencyLayout.Module module, File directory) {
+            this.module = module;
+            this.archive = module.getArchive();
+            this.directory = directory;
+        }
     }
 }
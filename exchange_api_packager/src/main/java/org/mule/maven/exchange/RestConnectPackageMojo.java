@@ -15,13 +15,17 @@ import org.mule.connectivity.restconnect.api.Parser;
 import org.mule.connectivity.restconnect.api.RestConnect;
 import org.mule.connectivity.restconnect.api.SpecFormat;
 import org.mule.maven.exchange.utils.ApiProjectConstants;
+import org.mule.maven.exchange.utils.ParallelTasks;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 
 @Mojo(name = "rest-connect", defaultPhase = LifecyclePhase.PACKAGE, requiresDependencyCollection = ResolutionScope.COMPILE_PLUS_RUNTIME, requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME)
@@ -58,6 +62,21 @@ public class RestConnectPackageMojo extends AbstractMojo {
     @Parameter(required = true)
     private String mainFile;
 
+    /**
+     * main files of the other specs bundled in the project (the "additionalMains" attribute of the exchange.json file),
+     * each of them generates its own connector, named after the artifact and the path of the spec (see
+     * {@link ApiProjectConstants#getSpecId(String)})
+     */
+    @Parameter
+    private List<String> additionalMainFiles;
+
+    /**
+     * number of connectors generated at once when there are {@link #additionalMainFiles}, one at a time by default as
+     * rest-connect is not documented as thread safe (0 generates all of them at once)
+     */
+    @Parameter(property = "exchange.restConnect.threads", defaultValue = "1")
+    private int restConnectThreads;
+
     /**
      * reference to the directory that's self contained, if not provided it will be guessed based on {@link ApiProjectConstants#getFatApiDirectory(java.io.File)}
      */
@@ -100,42 +119,88 @@ public class RestConnectPackageMojo extends AbstractMojo {
             return;
         }
 
-        //execute rest-connect
-        final File restConnectOutputDir = new File(buildDirectory, ApiProjectConstants.REST_CONNECT_OUTPUTDIR);
-        String connectorArtifactId = "mule-plugin-" + project.getArtifactId();
+        final List<Connector> connectors = new ArrayList<>();
+        connectors.add(new Connector(mainFile, apiMainFile, calculateRestConnectFormat(mainFile),
+                new File(buildDirectory, ApiProjectConstants.REST_CONNECT_OUTPUTDIR), project.getArtifactId()));
+        if (additionalMainFiles != null) {
+            try {
+                ApiProjectConstants.checkSpecIds(additionalMainFiles);
+            } catch (IllegalArgumentException e) {
+                throw new MojoExecutionException(e.getMessage());
+            }
+            for (String additionalMainFile : additionalMainFiles) {
+                final File additionalApiMainFile = new File(fullApiDirectory, additionalMainFile);
+                if (additionalMainFile.equals(mainFile)) {
+                    continue;
+                } else if (!additionalApiMainFile.exists()) {
+                    getLog().warn(String.format("Cant generate connector, additional main file [%s] can't be found in the full API directory [%s]",
+                            additionalMainFile,
+                            fullApiDirectory.getAbsolutePath()));
+                    continue;
+                }
+                connectors.add(new Connector(additionalMainFile, additionalApiMainFile,
+                        calculateRestConnectFormat(additionalMainFile),
+                        new File(buildDirectory, ApiProjectConstants.getRestConnectOutputDir(additionalMainFile)),
+                        project.getArtifactId() + "-" + ApiProjectConstants.getSpecId(additionalMainFile)));
+            }
+        }
+
+        //execute rest-connect, concurrently when there are several specs
+        final List<Callable<Void>> generations = new ArrayList<>();
+        for (Connector connector : connectors) {
+            generations.add(() -> {
+                generate(connector);
+                return null;
+            });
+        }
+        try {
+            ParallelTasks.invokeAll(generations, restConnectThreads);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof MojoExecutionException) {
+                throw (MojoExecutionException) e.getCause();
+            }
+            throw new MojoExecutionException("Internal error while generating the connectors.", e.getCause());
+        } catch (InterruptedException e) {
+            throw new MojoExecutionException("Internal error while generating the connectors.", e);
+        }
+
+        //verify if rest-connect did do something in the output directory, at least the pom.xml
+        for (Connector connector : connectors) {
+            if (new File(connector.outputDir, "pom.xml").exists()) {
+                getLog().info(String.format("Connector successfully generated, use this dependency for a Mule 4 Application:\n" +
+                                "         <dependency>\n" +
+                                "            <groupId>%s</groupId>\n" +
+                                "            <artifactId>%s</artifactId>\n" +
+                                "            <version>%s</version>\n" +
+                                "            <classifier>mule-plugin</classifier>\n" +
+                                "        </dependency>",
+                        project.getGroupId(),
+                        connector.artifactId,
+                        project.getVersion()));
+            } else {
+                throw new MojoExecutionException(String.format("Couldn't find any generated connector to attach under [%s]",
+                        connector.outputDir.getAbsolutePath()));
+            }
+        }
+    }
+
+    private void generate(Connector connector) throws MojoExecutionException {
         try {
             RestConnect.getInstance()
-                    .createConnectorFromSpec(apiMainFile, SpecFormat.getFromString(calculateRestConnectFormat()), Parser.AMF, ConnectorType.SmartConnector)
-                    .withApiName(project.getArtifactId())
+                    .createConnectorFromSpec(connector.apiMainFile, SpecFormat.getFromString(connector.format), Parser.AMF, ConnectorType.SmartConnector)
+                    .withApiName(connector.apiName)
                     .withGroupId(project.getGroupId())
-                    .withArtifactId(connectorArtifactId)
+                    .withArtifactId(connector.artifactId)
                     .withVersion(project.getVersion())
                     .withPackageConnector(false)
                     .withprojectDescription(getDescription(project))
-                    .withOutputDir(restConnectOutputDir.toPath())
+                    .withOutputDir(connector.outputDir.toPath())
                     .run();
         } catch (Exception e) {
-            final String messageError = String.format("Cant generate connector for [%s], rest-connect failed with [%s]", mainFile, e.getMessage());
+            final String messageError = String.format("Cant generate connector for [%s], rest-connect failed with [%s]", connector.mainFile, e.getMessage());
             getLog().error(messageError);
             throw new MojoExecutionException(messageError, e);
         }
-
-        //verify if rest-connect did do something in the output directory, at least the pom.xml
-        if (new File(restConnectOutputDir, "pom.xml").exists()) {
-            getLog().info(String.format("Connector successfully generated, use this dependency for a Mule 4 Application:\n" +
-                            "         <dependency>\n" +
-                            "            <groupId>%s</groupId>\n" +
-                            "            <artifactId>%s</artifactId>\n" +
-                            "            <version>%s</version>\n" +
-                            "            <classifier>mule-plugin</classifier>\n" +
-                            "        </dependency>",
-                    project.getGroupId(),
-                    connectorArtifactId,
-                    project.getVersion()));
-        } else {
-            throw new MojoExecutionException(String.format("Couldn't find any generated connector to attach under [%s]",
-                    restConnectOutputDir.getAbsolutePath()));
-        }
     }
 
     private String getDescription(MavenProject project) {
@@ -158,17 +223,41 @@ public class RestConnectPackageMojo extends AbstractMojo {
     }
 
     /**
-     * @return the supported spec on rest-connect side by the extension of the parameterized {@link #mainFile}
+     * @return the supported spec on rest-connect side by the extension of the {@code main} file
      * (see {@link #EXTENSIONS_SPEC_FORMAT})
      * @throws MojoExecutionException if the extension is not supported, or there's no extension at all
      */
-    private String calculateRestConnectFormat() throws MojoExecutionException {
-        final int offset = mainFile.lastIndexOf('.');
-        final String extension = (offset > 0 ? mainFile.substring(offset + 1) : "DEFAULT_ERROR_VALUE").toLowerCase();
+    private String calculateRestConnectFormat(String main) throws MojoExecutionException {
+        final int offset = main.lastIndexOf('.');
+        final String extension = (offset > 0 ? main.substring(offset + 1) : "DEFAULT_ERROR_VALUE").toLowerCase();
         if (!EXTENSIONS_SPEC_FORMAT.containsKey(extension)) {
             throw new MojoExecutionException(String.format("The 'mainFile' parameter needs to have a valid extension, but found [%s] (accepted extensions are: [%s])",
                     extension, String.join(",", EXTENSIONS_SPEC_FORMAT.keySet())));
         }
         return EXTENSIONS_SPEC_FORMAT.get(extension);
     }
+
+    private static class Connector {
+
+        private final String mainFile;
+
+        private final File apiMainFile;
+
+        private final String format;
+
+        private final File outputDir;
+
+        private final String apiName;
+
+        private final String artifactId;
+
+        Connector(String mainFile, File apiMainFile, String format, File outputDir, String apiName) {
+            this.mainFile = mainFile;
+            this.apiMainFile = apiMainFile;
+            this.format = format;
+            this.outputDir = outputDir;
+            this.apiName = apiName;
+            this.artifactId = "mule-plugin-" + apiName;
+        }
+    }
 }
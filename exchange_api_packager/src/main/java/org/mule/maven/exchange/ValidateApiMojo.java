@@ -2,35 +2,56 @@ package org.mule.maven.exchange;
 
 
 import amf.apicontract.client.platform.*;
-import amf.core.client.platform.AMFParseResult;
-import amf.core.client.platform.model.document.BaseUnit;
-import amf.core.client.platform.validation.AMFValidationReport;
 import amf.core.internal.remote.Spec;
+import org.apache.commons.io.filefilter.TrueFileFilter;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.*;
 import org.apache.maven.project.MavenProject;
+import org.mule.maven.exchange.utils.ApiDocuments;
 import org.mule.maven.exchange.utils.ApiProjectConstants;
+import org.mule.maven.exchange.utils.ArchiveIO;
+import org.mule.maven.exchange.utils.DependencyLayout;
+import org.mule.maven.exchange.utils.ExchangeModulesOverlay;
 import org.mule.maven.exchange.utils.ExchangeModulesResourceLoader;
+import org.mule.maven.exchange.utils.InputManifest;
+import org.mule.maven.exchange.utils.IoExecutors;
+import org.mule.maven.exchange.utils.ParallelTasks;
 
 import java.io.File;
 import java.io.IOException;
-import java.net.URLDecoder;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Mojo(name = "validate-api", defaultPhase = LifecyclePhase.COMPILE, requiresDependencyCollection = ResolutionScope.COMPILE_PLUS_RUNTIME, requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME)
 @Execute(goal = "validate-api")
 public class ValidateApiMojo extends AbstractMojo {
 
+    /**
+     * file, within the build directory, with the stamp of the last successful validation
+     */
+    private static final String VALIDATION_STAMP = "validate-api.manifest";
+
     @Component
     private MavenProject project;
 
+    @Component
+    private AmfEngine amfEngine;
+
     @Parameter(defaultValue = "raml")
     private String classifier;
 
@@ -40,54 +61,386 @@ public class ValidateApiMojo extends AbstractMojo {
     @Parameter()
     private String mainFile;
 
+    /**
+     * main files of the other specs bundled in the project (the "additionalMains" attribute of the exchange.json file),
+     * validated concurrently along with the {@link #mainFile}
+     */
+    @Parameter
+    private List<String> additionalMainFiles;
+
     /**
      * reference to the directory that's self contained, if not provided it will be guessed based on {@link ApiProjectConstants#getFatApiDirectory(java.io.File)}
      */
     @Parameter
     private String fatApiDirectory;
 
+    /**
+     * validate the sources of the project reading the fragments straight from the dependency archives, instead of the
+     * extracted fat API directory
+     */
+    @Parameter(property = "exchange.validate.overlay", defaultValue = "false")
+    private boolean overlay;
+
+    /**
+     * load the resources of the API on a dedicated I/O executor (virtual threads on JDK 21+), prefetching every file of
+     * the API as soon as the validation starts
+     */
+    @Parameter(property = "exchange.validate.async", defaultValue = "false")
+    private boolean asyncLoader;
+
+    /**
+     * number of threads used to load the resources when {@link #asyncLoader} is enabled and virtual threads are not
+     * available, defaults to 4 times the number of available processors
+     */
+    @Parameter(property = "exchange.validate.ioThreads", defaultValue = "0")
+    private int ioThreads;
+
+    /**
+     * skip the validation when the API, its main file, classifier and the AMF version didn't change since the last
+     * successful validation
+     */
+    @Parameter(property = "exchange.validate.incremental", defaultValue = "true")
+    private boolean incremental;
+
+    /**
+     * validate the fat API on a long lived validation daemon (a local JVM shared by every build, started on demand and
+     * stopped once idle), instead of within Maven; ignored when validating through the {@link #overlay}
+     */
+    @Parameter(property = "exchange.validate.daemon", defaultValue = "false")
+    private boolean daemon;
+
+    /**
+     * directory with the registry and the log of the validation daemons
+     */
+    @Parameter(property = "exchange.validate.daemon.directory", defaultValue = "${user.home}/.m2/exchange-validation-daemon")
+    private File daemonDirectory;
+
+    /**
+     * options of the JVM of the validation daemon, AMF models are deeply nested and mostly short lived
+     */
+    @Parameter(property = "exchange.validate.daemon.jvmArgs", defaultValue = "-Xss8m -Xms512m -XX:+UseParallelGC")
+    private String daemonJvmArgs;
+
+    /**
+     * seconds the validation daemon waits for a new validation before exiting
+     */
+    @Parameter(property = "exchange.validate.daemon.idleTimeout", defaultValue = "10800")
+    private long daemonIdleTimeout;
+
+    /**
+     * seconds to wait for the validation daemon to validate an API before failing the build
+     */
+    @Parameter(property = "exchange.validate.daemon.timeout", defaultValue = "1800")
+    private int daemonTimeout;
+
+    /**
+     * how strictly the API is checked: {@code parse-only} (syntax and references, skips the validation),
+     * {@code examples-as-warnings} (same validation as {@code full}, but examples that don't match their types are
+     * reported as warnings) or {@code full}
+     */
+    @Parameter(property = "exchange.validate.mode", defaultValue = "full")
+    private String validationMode;
+
+    /**
+     * validate every RAML and OAS document of a {@code raml-fragment} concurrently, instead of its main file only
+     * (always done when there's no main file)
+     */
+    @Parameter(property = "exchange.validate.fragments", defaultValue = "false")
+    private boolean fragments;
+
+    /**
+     * number of documents validated concurrently in {@link #fragments} mode, defaults to the number of available
+     * processors
+     */
+    @Parameter(property = "exchange.validate.fragments.threads", defaultValue = "0")
+    private int fragmentThreads;
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
         final File buildDirectory = new File(project.getBuild().getDirectory());
         if (classifier.equals("raml") || classifier.equals("raml-fragment") || classifier.equals("oas")) {
-            try {
-                /* Parsing Raml 10 with specified file returning future. */
-                BaseUnit result;
-                File parent = calculateFatDirectory(buildDirectory);
-                final File ramlFile = new File(parent, this.mainFile);
-                if (!ramlFile.exists()) {
-                    throw new MojoFailureException("The specified 'main' property '" + this.mainFile + "' can not be found. Please review your exchange.json");
+            final ValidationMode mode = getValidationMode();
+            final File stampFile = new File(buildDirectory, VALIDATION_STAMP);
+            final InputManifest stamp = incremental ? createValidationStamp(buildDirectory) : null;
+            if (stamp != null && stamp.matches(stampFile)) {
+                getLog().info(String.format("API [%s] didn't change since the last successful validation, skipping it", String.join(",", getMainFiles())));
+                return;
+            }
+            final boolean fragmentMode = isFragmentMode();
+            if (daemon && !overlay && !fragmentMode) {
+                validateOnDaemon(calculateFatDirectory(buildDirectory), mode);
+                saveValidationStamp(stamp, stampFile);
+                return;
+            }
+            // validated in this JVM, AMF initializes while the resources of the API are set up
+            amfEngine.warmUp();
+            final ExecutorService ioExecutor = asyncLoader ? IoExecutors.newExecutor("exchange-validate-io", ioThreads) : null;
+            try (ExchangeModulesOverlay exchangeModulesOverlay = overlay ? createOverlay() : null) {
+                File parent = overlay ? new File(project.getBuild().getSourceDirectory()) : calculateFatDirectory(buildDirectory);
+                final ExchangeModulesResourceLoader resourceLoader = new ExchangeModulesResourceLoader(parent.getAbsolutePath().replace(File.separator, "/"), exchangeModulesOverlay);
+                if (ioExecutor != null) {
+                    // in overlay mode the root is the base directory, which also holds the build directory and the VCS metadata
+                    resourceLoader.withExecutor(ioExecutor)
+                            .withProjectFilter(new ApiSourceFileFilter(parent.getAbsoluteFile(), buildDirectory.getAbsoluteFile()));
+                    getLog().debug(String.format("Prefetching [%d] resources on %s threads", resourceLoader.prefetch(), IoExecutors.isVirtual() ? "virtual" : "platform"));
                 }
-                final String mainFileURL = URLDecoder.decode(ramlFile.toURI().toString(), "UTF-8");
-                final AMFBaseUnitClient client;
-                final AMFParseResult parseResult;
-                final AMFConfiguration amfConfiguration = WebAPIConfiguration.WebAPI().withResourceLoader(new ExchangeModulesResourceLoader(parent.getAbsolutePath().replace(File.separator, "/")));
-                
-                client = amfConfiguration.baseUnitClient();
-                parseResult = client.parse(mainFileURL).get();
-                
-                if (!parseResult.conforms()) {
-                    getLog().error(parseResult.toString());
-                    throw new MojoFailureException("Build Fail");
+                if (!amfEngine.isReady()) {
+                    getLog().debug("Waiting for AMF to be initialized");
                 }
-                
-                result = parseResult.baseUnit();
-
-                /* Run RAML default validations on parsed unit (expects no errors). */
-                final AMFBaseUnitClient validatorClient = WebAPIConfiguration.fromSpec(result.sourceSpec().get()).baseUnitClient();
-                final AMFValidationReport validationReport = validatorClient.validate(result).get();
-                
-                if (!validationReport.conforms()) {
-                    getLog().error(validationReport.toString());
-                    throw new MojoFailureException("Build Fail");
+                final AMFConfiguration amfConfiguration = amfEngine.getConfiguration().withResourceLoader(resourceLoader);
+                final ApiValidator validator = new ApiValidator(amfEngine, amfConfiguration, mode);
+
+                if (fragmentMode) {
+                    validateFragments(parent, buildDirectory, validator, mode);
+                    getLog().debug(String.format("Resources of the fragments loaded with %s", resourceLoader.getStatistics()));
+                } else {
+                    final List<String> mainFiles = getMainFiles();
+                    final List<File> apiMainFiles = getApiMainFiles(parent, mainFiles);
+
+                    /* Parse every main file and run the default validations of its spec on it (expects no errors). */
+                    final List<Callable<ApiValidator.Result>> validations = new ArrayList<>();
+                    for (File apiMainFile : apiMainFiles) {
+                        validations.add(() -> validator.validate(apiMainFile));
+                    }
+                    final List<ApiValidator.Result> results = ParallelTasks.invokeAll(validations, 0);
+                    getLog().debug(String.format("Resources of [%s] loaded with %s", String.join(",", mainFiles), resourceLoader.getStatistics()));
+
+                    boolean conforms = true;
+                    for (int i = 0; i < results.size(); i++) {
+                        final ApiValidator.Result result = results.get(i);
+                        if (!result.conforms()) {
+                            conforms = false;
+                            getLog().error(result.getReport());
+                            continue;
+                        } else if (!result.getReport().isEmpty()) {
+                            getLog().warn(result.getReport());
+                        }
+                        logValidation(mainFiles.get(i), mode, result.getParseMillis(), result.getValidationMillis());
+                    }
+                    if (!conforms) {
+                        throw new MojoFailureException("Build Fail");
+                    }
                 }
 
+                saveValidationStamp(stamp, stampFile);
+
             } catch (InterruptedException | ExecutionException | IOException e) {
                 throw new MojoExecutionException("Internal error while validating.", e);
+            } finally {
+                if (ioExecutor != null) {
+                    ioExecutor.shutdownNow();
+                }
             }
         }
     }
 
+    /**
+     * Validates the main files of the fat API on the validation daemon concurrently, starting it if needed.
+     *
+     * @throws MojoFailureException if any of the APIs doesn't conform
+     */
+    private void validateOnDaemon(File fatDirectory, ValidationMode mode) throws MojoExecutionException, MojoFailureException {
+        final List<String> mainFiles = getMainFiles();
+        getApiMainFiles(fatDirectory, mainFiles);
+        final List<String> jvmArgs = StringUtils.isBlank(daemonJvmArgs) ? Collections.emptyList() : Arrays.asList(daemonJvmArgs.trim().split("\\s+"));
+        final ValidationDaemonClient client = new ValidationDaemonClient(daemonDirectory, jvmArgs, daemonIdleTimeout, daemonTimeout, getLog());
+        final List<Callable<ValidationDaemonClient.Result>> validations = new ArrayList<>();
+        for (String main : mainFiles) {
+            validations.add(() -> client.validate(fatDirectory, main, mode));
+        }
+        final List<ValidationDaemonClient.Result> results;
+        try {
+            results = ParallelTasks.invokeAll(validations, 0);
+        } catch (InterruptedException | ExecutionException e) {
+            throw new MojoExecutionException("Internal error while validating on the validation daemon.", e);
+        }
+        boolean conforms = true;
+        for (int i = 0; i < results.size(); i++) {
+            final ValidationDaemonClient.Result result = results.get(i);
+            if (result.isError()) {
+                throw new MojoExecutionException(String.format("Internal error while validating on the validation daemon:%n%s", result.getReport()));
+            }
+            if (!result.conforms()) {
+                conforms = false;
+                getLog().error(result.getReport());
+                continue;
+            } else if (!result.getReport().isEmpty()) {
+                getLog().warn(result.getReport());
+            }
+            getLog().debug(String.format("API [%s] validated on the validation daemon", mainFiles.get(i)));
+            logValidation(mainFiles.get(i), mode, result.getParseMillis(), mode.validates() ? result.getValidationMillis() : -1);
+        }
+        if (!conforms) {
+            throw new MojoFailureException("Build Fail");
+        }
+    }
+
+    /**
+     * @return the {@link #mainFile} followed by the {@link #additionalMainFiles}, without repetitions
+     */
+    private List<String> getMainFiles() {
+        final Set<String> result = new LinkedHashSet<>();
+        result.add(mainFile);
+        if (additionalMainFiles != null) {
+            additionalMainFiles.stream().filter(StringUtils::isNotBlank).forEach(result::add);
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * @return the {@code mainFiles} within the {@code parent} directory
+     * @throws MojoFailureException if any of them doesn't exist
+     */
+    private List<File> getApiMainFiles(File parent, List<String> mainFiles) throws MojoFailureException {
+        final List<File> result = new ArrayList<>();
+        for (String main : mainFiles) {
+            final File apiMainFile = new File(parent, main);
+            if (!apiMainFile.exists()) {
+                throw new MojoFailureException("The specified 'main' property '" + main + "' can not be found. Please review your exchange.json");
+            }
+            result.add(apiMainFile);
+        }
+        return result;
+    }
+
+    /**
+     * @return whether every document of a {@code raml-fragment} is validated, instead of the {@link #mainFile} only
+     */
+    private boolean isFragmentMode() {
+        return classifier.equals("raml-fragment") && (fragments || StringUtils.isBlank(mainFile));
+    }
+
+    /**
+     * Validates every RAML and OAS document found under the {@code root} directory (but the dependencies) concurrently,
+     * reporting the results of all of them at once.
+     *
+     * @throws MojoFailureException if any of the documents doesn't conform
+     */
+    private void validateFragments(File root, File buildDirectory, ApiValidator validator, ValidationMode mode) throws MojoExecutionException, MojoFailureException, IOException, InterruptedException {
+        final List<File> documents = new ArrayList<>();
+        ArchiveIO.walk(root, new ApiSourceFileFilter(root, buildDirectory), null, (name, file) -> {
+            if (ApiDocuments.isApiDocument(file)) {
+                documents.add(file);
+            }
+        });
+        if (documents.isEmpty()) {
+            getLog().warn(String.format("No RAML or OAS document found under [%s], nothing to validate", root.getAbsolutePath()));
+            return;
+        }
+        Collections.sort(documents);
+        final int threads = Math.min(documents.size(), fragmentThreads > 0 ? fragmentThreads : Runtime.getRuntime().availableProcessors());
+        final List<Callable<ApiValidator.Result>> validations = new ArrayList<>();
+        for (File document : documents) {
+            validations.add(() -> validator.validate(document));
+        }
+        final long start = System.nanoTime();
+        final List<ApiValidator.Result> results;
+        try {
+            results = ParallelTasks.invokeAll(validations, threads);
+        } catch (ExecutionException e) {
+            throw new MojoExecutionException("Internal error while validating.", e.getCause());
+        }
+
+        final Path rootPath = root.toPath();
+        int failed = 0;
+        for (ApiValidator.Result result : results) {
+            final Path document = rootPath.relativize(result.getFile().toPath());
+            getLog().debug(String.format("Fragment [%s] validated: parsing took [%d] ms, validation %s", document, result.getParseMillis(),
+                    result.getValidationMillis() >= 0 ? String.format("took [%d] ms", result.getValidationMillis()) : "skipped"));
+            if (!result.conforms()) {
+                failed++;
+                getLog().error(String.format("Fragment [%s] doesn't conform:%n%s", document, result.getReport()));
+            } else if (!result.getReport().isEmpty()) {
+                getLog().warn(String.format("Fragment [%s] has warnings:%n%s", document, result.getReport()));
+            }
+        }
+        getLog().info(String.format("[%d] fragments validated in [%s] mode on [%d] threads in [%d] ms: [%d] conform, [%d] don't",
+                results.size(), mode.getId(), threads, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), results.size() - failed, failed));
+        if (failed > 0) {
+            throw new MojoFailureException("Build Fail");
+        }
+    }
+
+    /**
+     * Reports the mode the API was validated with, so that builds can tell a full validation from a partial one.
+     *
+     * @param validationMillis milliseconds taken by the validation, negative if it didn't run
+     */
+    private void logValidation(String main, ValidationMode mode, long parseMillis, long validationMillis) {
+        getLog().info(String.format("API [%s] validated in [%s] mode: parsing took [%d] ms, validation %s", main, mode.getId(), parseMillis,
+                validationMillis >= 0 ? String.format("took [%d] ms", validationMillis) : "skipped"));
+    }
+
+    private ValidationMode getValidationMode() throws MojoExecutionException {
+        try {
+            return ValidationMode.of(validationMode);
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException(e.getMessage());
+        }
+    }
+
+    private void saveValidationStamp(InputManifest stamp, File stampFile) {
+        if (stamp != null) {
+            try {
+                stamp.save(stampFile);
+            } catch (IOException e) {
+                getLog().warn(String.format("Unable to store the validation stamp [%s], next build will validate the API again", stampFile.getAbsolutePath()));
+            }
+        }
+    }
+
+    /**
+     * @return a stamp with the content hash of every file of the API (including the dependency archives when reading
+     * them through the overlay), along with every option that alters the validation
+     * @throws MojoExecutionException if any of the files can't be read
+     */
+    private InputManifest createValidationStamp(File buildDirectory) throws MojoExecutionException {
+        try {
+            final InputManifest result = new InputManifest(true)
+                    .addOption("mainFile", mainFile)
+                    .addOption("additionalMainFiles", additionalMainFiles != null ? String.join(",", additionalMainFiles) : "")
+                    .addOption("classifier", classifier)
+                    .addOption("amf", getAmfVersion())
+                    .addOption("overlay", String.valueOf(overlay))
+                    .addOption("validationMode", validationMode)
+                    .addOption("fragments", String.valueOf(isFragmentMode()));
+            if (overlay) {
+                final File sourceDirectory = new File(project.getBuild().getSourceDirectory());
+                result.addDirectory("sources", sourceDirectory, new ApiSourceFileFilter(sourceDirectory, buildDirectory));
+                for (DependencyLayout.Module module : DependencyLayout.of(project.getArtifacts()).getModules()) {
+                    result.addOption(module.getPath(), ArchiveIO.sha256(module.getArchive()));
+                }
+            } else {
+                result.addDirectory("fatApi", calculateFatDirectory(buildDirectory), TrueFileFilter.INSTANCE);
+            }
+            return result;
+        } catch (IOException e) {
+            throw new MojoExecutionException("Exception while reading the API", e);
+        }
+    }
+
+    /**
+     * @return the version of AMF the API is validated with, so that upgrading it invalidates the validation stamp
+     */
+    private static String getAmfVersion() {
+        final String version = WebAPIConfiguration.class.getPackage().getImplementationVersion();
+        if (version != null) {
+            return version;
+        }
+        // the AMF jars don't always have a manifest, the name of the jar has the version anyway
+        final CodeSource codeSource = WebAPIConfiguration.class.getProtectionDomain().getCodeSource();
+        return codeSource != null && codeSource.getLocation() != null ? codeSource.getLocation().getPath() : "unknown";
+    }
+
+    /**
+     * @return an overlay with the zip of every resolved dependency, served as if it had been extracted by
+     * {@link FullApiGeneratorMojo}
+     */
+    private ExchangeModulesOverlay createOverlay() {
+        getLog().debug("Validating the API straight from the sources and the dependency archives");
+        return new ExchangeModulesOverlay(DependencyLayout.of(project.getArtifacts()));
+    }
+
     /**
      * @return a file pointing to the directory of the fat API, either by taking it from the parameterized {@link #fatApiDirectory},
      * or by doing a guessing in the current build directory.
@@ -0,0 +1,288 @@
+package org.mule.maven.exchange;
+
+import amf.apicontract.client.platform.AMFConfiguration;
+import org.mule.maven.exchange.utils.ExchangeModulesResourceLoader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long lived JVM that validates APIs on behalf of {@link ValidateApiMojo}, so that AMF is initialized and warmed up (JIT)
+ * once for every build run on the machine, out of the heap of Maven.
+ * <p>
+ * The daemon listens on a loopback port, registered along with a random token in the {@link #REGISTRY} file of its
+ * directory (see {@link ValidationDaemonClient} for the protocol). Requests are served concurrently, and the daemon exits
+ * once it has been idle for the given timeout, or as soon as AMF fails to initialize (the next build starts a new one).
+ * <p>
+ * Usage: {@code ValidationDaemon <directory> <idle timeout in seconds>}
+ */
+public class ValidationDaemon {
+
+    /**
+     * file, within the directory of the daemon, with its port and token
+     */
+    static final String REGISTRY = "daemon.properties";
+
+    static final int CONFORMS = 0;
+
+    static final int FAILED = 1;
+
+    static final int ERROR = 2;
+
+    /**
+     * how often the daemon checks whether it has been idle for too long
+     */
+    private static final int IDLE_CHECK_MILLIS = 10 * 1000;
+
+    /**
+     * time given to the clients to send their request, so that a silent connection doesn't keep the daemon busy forever
+     */
+    static final int REQUEST_TIMEOUT_MILLIS = 30 * 1000;
+
+    /**
+     * maximum length, in bytes, of the strings of a request (token, paths and mode)
+     */
+    static final int MAX_REQUEST_STRING_LENGTH = 64 * 1024;
+
+    private final File directory;
+
+    private final long idleTimeoutMillis;
+
+    private final int requestTimeoutMillis;
+
+    private final String token = UUID.randomUUID().toString();
+
+    private final AmfEngine amfEngine;
+
+    private final AtomicInteger activeRequests = new AtomicInteger();
+
+    private volatile long lastActivity = System.currentTimeMillis();
+
+    private volatile ServerSocket serverSocket;
+
+    /**
+     * whether AMF failed to initialize, in which case the daemon stops serving requests
+     */
+    private volatile boolean broken;
+
+    ValidationDaemon(File directory, long idleTimeoutMillis) {
+        this(directory, idleTimeoutMillis, REQUEST_TIMEOUT_MILLIS);
+    }
+
+    ValidationDaemon(File directory, long idleTimeoutMillis, int requestTimeoutMillis) {
+        this(directory, idleTimeoutMillis, requestTimeoutMillis, new AmfEngine());
+    }
+
+    ValidationDaemon(File directory, long idleTimeoutMillis, int requestTimeoutMillis, AmfEngine amfEngine) {
+        this.directory = directory;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.requestTimeoutMillis = requestTimeoutMillis;
+        this.amfEngine = amfEngine;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: ValidationDaemon <directory> <idle timeout in seconds>");
+            System.exit(1);
+        }
+        final ValidationDaemon daemon = new ValidationDaemon(new File(args[0]), Long.parseLong(args[1]) * 1000);
+        daemon.run();
+        // AMF might leave non daemon threads behind
+        System.exit(daemon.isBroken() ? 1 : 0);
+    }
+
+    void run() throws IOException {
+        // the daemon only exists to validate, so AMF initializes while it waits for the first request
+        amfEngine.warmUp();
+        final ExecutorService workers = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "exchange-validation-daemon");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            this.serverSocket = serverSocket;
+            serverSocket.setSoTimeout((int) Math.max(1, Math.min(idleTimeoutMillis, IDLE_CHECK_MILLIS)));
+            register(serverSocket.getLocalPort());
+            while (!broken) {
+                try {
+                    final Socket socket = serverSocket.accept();
+                    activeRequests.incrementAndGet();
+                    lastActivity = System.currentTimeMillis();
+                    workers.execute(() -> serve(socket));
+                } catch (SocketTimeoutException e) {
+                    if (activeRequests.get() == 0 && System.currentTimeMillis() - lastActivity >= idleTimeoutMillis) {
+                        break;
+                    }
+                } catch (SocketException e) {
+                    // closed by a request that found AMF broken
+                    if (!broken) {
+                        throw e;
+                    }
+                }
+            }
+        } finally {
+            unregister();
+            workers.shutdownNow();
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket closeable = socket;
+             DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            socket.setSoTimeout(requestTimeoutMillis);
+            if (!token.equals(readString(input, MAX_REQUEST_STRING_LENGTH))) {
+                return;
+            }
+            final File root = new File(readString(input, MAX_REQUEST_STRING_LENGTH));
+            final String mainFile = readString(input, MAX_REQUEST_STRING_LENGTH);
+            final String mode = readString(input, MAX_REQUEST_STRING_LENGTH);
+            int status;
+            String report;
+            long parseMillis = 0;
+            long validationMillis = -1;
+            try {
+                final ApiValidator.Result result = validate(root, mainFile, ValidationMode.of(mode));
+                status = result.conforms() ? CONFORMS : FAILED;
+                report = result.getReport();
+                parseMillis = result.getParseMillis();
+                validationMillis = result.getValidationMillis();
+            } catch (Exception e) {
+                final StringWriter stackTrace = new StringWriter();
+                e.printStackTrace(new PrintWriter(stackTrace));
+                status = ERROR;
+                report = stackTrace.toString();
+            }
+            output.writeInt(status);
+            writeString(output, report);
+            output.writeLong(parseMillis);
+            output.writeLong(validationMillis);
+        } catch (IOException e) {
+            // the client went away or sent an invalid request, nothing to answer
+        } finally {
+            lastActivity = System.currentTimeMillis();
+            activeRequests.decrementAndGet();
+            if (broken) {
+                stop();
+            }
+        }
+    }
+
+    /**
+     * @return whether the daemon stopped because AMF failed to initialize
+     */
+    boolean isBroken() {
+        return broken;
+    }
+
+    private void stop() {
+        try {
+            final ServerSocket current = serverSocket;
+            if (current != null) {
+                current.close();
+            }
+        } catch (IOException e) {
+            // the loop stops anyway on its next timeout
+        }
+    }
+
+    /**
+     * Same parsing and validation of {@link ValidateApiMojo}, on the extracted fat API.
+     */
+    private ApiValidator.Result validate(File root, String mainFile, ValidationMode mode) throws Exception {
+        final ExchangeModulesResourceLoader resourceLoader = new ExchangeModulesResourceLoader(root.getAbsolutePath().replace(File.separator, "/"));
+        final AMFConfiguration amfConfiguration;
+        try {
+            amfConfiguration = amfEngine.getConfiguration().withResourceLoader(resourceLoader);
+        } catch (ExecutionException e) {
+            // whatever broke AMF in this JVM is likely to break it again, so let the next build start a new daemon
+            broken = true;
+            throw e;
+        }
+        return new ApiValidator(amfEngine, amfConfiguration, mode).validate(new File(root, mainFile));
+    }
+
+    private void register(int port) throws IOException {
+        final Properties registry = new Properties();
+        registry.setProperty("port", String.valueOf(port));
+        registry.setProperty("token", token);
+        Files.createDirectories(directory.toPath());
+        final Path temporal = Files.createTempFile(directory.toPath(), REGISTRY, ".tmp");
+        try (OutputStream outputStream = Files.newOutputStream(temporal)) {
+            registry.store(outputStream, "exchange validation daemon");
+        }
+        Files.move(temporal, new File(directory, REGISTRY).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Deletes the registry, unless another daemon already replaced it.
+     */
+    private void unregister() {
+        final File registryFile = new File(directory, REGISTRY);
+        try {
+            final Properties registry = readRegistry(registryFile);
+            if (registry != null && token.equals(registry.getProperty("token"))) {
+                Files.deleteIfExists(registryFile.toPath());
+            }
+        } catch (IOException e) {
+            // a stale registry is detected by the clients anyway
+        }
+    }
+
+    /**
+     * @return the registry of the daemon, or null if there's none
+     */
+    static Properties readRegistry(File registryFile) throws IOException {
+        if (!registryFile.exists()) {
+            return null;
+        }
+        final Properties result = new Properties();
+        try (InputStream inputStream = Files.newInputStream(registryFile.toPath())) {
+            result.load(inputStream);
+        }
+        return result;
+    }
+
+    /**
+     * @param maxLength maximum length of the string in bytes, checked before allocating it
+     * @throws IOException if the length of the string is negative or over {@code maxLength}
+     */
+    static String readString(DataInputStream input, int maxLength) throws IOException {
+        final int length = input.readInt();
+        if (length < 0 || length > maxLength) {
+            throw new IOException(String.format("Invalid string length [%d], the maximum is [%d]", length, maxLength));
+        }
+        final byte[] content = new byte[length];
+        input.readFully(content);
+        return new String(content, StandardCharsets.UTF_8);
+    }
+
+    static void writeString(DataOutputStream output, String value) throws IOException {
+        final byte[] content = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(content.length);
+        output.write(content);
+    }
+}
@@ -0,0 +1,260 @@
+package org.mule.maven.exchange;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends the APIs to validate to the {@link ValidationDaemon}, starting it when it's not running.
+ * <p>
+ * Every request is a connection to the loopback port of the daemon, with the token of the daemon, the directory of the
+ * fat API, its main file and the {@link ValidationMode}, answered with the status of the validation, its report and the
+ * milliseconds taken by the parsing and the validation (strings are sent as their length followed by their UTF-8 bytes).
+ * Both ends bound the time they wait for each other, and the length of the strings they read.
+ * <p>
+ * Daemons are kept apart by the classpath of the plugin, so that builds using different versions of the plugin (or of
+ * AMF) never share one.
+ */
+class ValidationDaemonClient {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 2 * 1000;
+
+    private static final long START_TIMEOUT_MILLIS = 60 * 1000;
+
+    /**
+     * maximum length, in bytes, of the report of a validation
+     */
+    private static final int MAX_REPORT_LENGTH = 256 * 1024 * 1024;
+
+    /**
+     * guards the start of the daemon within this JVM, as the file lock does among JVMs
+     */
+    private static final Object START_LOCK = new Object();
+
+    private final File directory;
+
+    private final String classpath;
+
+    private final List<String> jvmArgs;
+
+    private final long idleTimeoutSeconds;
+
+    private final int timeoutMillis;
+
+    private final Log log;
+
+    /**
+     * @param baseDirectory  directory of the daemons of every version of the plugin
+     * @param timeoutSeconds seconds to wait for the result of a validation
+     */
+    ValidationDaemonClient(File baseDirectory, List<String> jvmArgs, long idleTimeoutSeconds, int timeoutSeconds, Log log) {
+        this.classpath = getClasspath();
+        this.directory = new File(baseDirectory, Integer.toHexString(classpath.hashCode()));
+        this.jvmArgs = jvmArgs;
+        this.idleTimeoutSeconds = idleTimeoutSeconds;
+        this.timeoutMillis = (int) Math.min(Integer.MAX_VALUE, TimeUnit.SECONDS.toMillis(timeoutSeconds));
+        this.log = log;
+    }
+
+    /**
+     * @return the directory of the daemon of this version of the plugin
+     */
+    File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the result of validating the {@code mainFile} of the fat API in {@code root}
+     * @throws IOException if the daemon can't be started, it went away while validating or it didn't answer in time
+     */
+    Result validate(File root, String mainFile, ValidationMode mode) throws IOException, InterruptedException {
+        Properties registry = ValidationDaemon.readRegistry(new File(directory, ValidationDaemon.REGISTRY));
+        Socket socket = registry != null ? connect(registry) : null;
+        if (socket == null) {
+            registry = start();
+            socket = connect(registry);
+            if (socket == null) {
+                throw new IOException(String.format("Unable to connect to the validation daemon, see [%s]", getLogFile().getAbsolutePath()));
+            }
+        }
+        try (Socket closeable = socket;
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+             DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            socket.setSoTimeout(timeoutMillis);
+            ValidationDaemon.writeString(output, registry.getProperty("token"));
+            ValidationDaemon.writeString(output, root.getAbsolutePath());
+            ValidationDaemon.writeString(output, mainFile);
+            ValidationDaemon.writeString(output, mode.getId());
+            output.flush();
+            final int status = input.readInt();
+            final String report = ValidationDaemon.readString(input, MAX_REPORT_LENGTH);
+            return new Result(status, report, input.readLong(), input.readLong());
+        } catch (SocketTimeoutException e) {
+            throw new IOException(String.format("The validation daemon didn't answer in [%d] seconds, see [%s]",
+                    TimeUnit.MILLISECONDS.toSeconds(timeoutMillis), getLogFile().getAbsolutePath()), e);
+        }
+    }
+
+    /**
+     * @return a connection to the daemon of the {@code registry}, or null if it's not listening anymore
+     */
+    private Socket connect(Properties registry) {
+        final Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(registry.getProperty("port"))), CONNECT_TIMEOUT_MILLIS);
+            return socket;
+        } catch (IOException | RuntimeException e) {
+            try {
+                socket.close();
+            } catch (IOException closeException) {
+                // nothing to release
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Starts a daemon, unless another build started one in the meantime.
+     *
+     * @return the registry of the running daemon
+     */
+    private Properties start() throws IOException, InterruptedException {
+        synchronized (START_LOCK) {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException(String.format("Unable to create the directory of the validation daemon [%s]", directory.getAbsolutePath()));
+            }
+            final File registryFile = new File(directory, ValidationDaemon.REGISTRY);
+            try (RandomAccessFile lockFile = new RandomAccessFile(new File(directory, "daemon.lock"), "rw");
+                 FileLock lock = lockFile.getChannel().lock()) {
+                final Properties running = ValidationDaemon.readRegistry(registryFile);
+                if (running != null) {
+                    final Socket socket = connect(running);
+                    if (socket != null) {
+                        socket.close();
+                        return running;
+                    }
+                    // left behind by a daemon that was killed
+                    Files.deleteIfExists(registryFile.toPath());
+                }
+                final long startedAt = System.currentTimeMillis();
+                final Process process = new ProcessBuilder(getCommand())
+                        .redirectErrorStream(true)
+                        .redirectOutput(ProcessBuilder.Redirect.appendTo(getLogFile()))
+                        .start();
+                log.info(String.format("Starting the validation daemon, idle timeout [%d] seconds", idleTimeoutSeconds));
+                while (System.currentTimeMillis() - startedAt < START_TIMEOUT_MILLIS) {
+                    final Properties started = ValidationDaemon.readRegistry(registryFile);
+                    if (started != null) {
+                        return started;
+                    }
+                    if (process.waitFor(100, TimeUnit.MILLISECONDS)) {
+                        break;
+                    }
+                }
+                process.destroy();
+                throw new IOException(String.format("The validation daemon didn't start, see [%s]", getLogFile().getAbsolutePath()));
+            }
+        }
+    }
+
+    private List<String> getCommand() {
+        final List<String> result = new ArrayList<>();
+        result.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getAbsolutePath());
+        result.addAll(jvmArgs);
+        result.add("-cp");
+        result.add(classpath);
+        result.add(ValidationDaemon.class.getName());
+        result.add(directory.getAbsolutePath());
+        result.add(String.valueOf(idleTimeoutSeconds));
+        return result;
+    }
+
+    private File getLogFile() {
+        return new File(directory, "daemon.log");
+    }
+
+    /**
+     * @return the classpath of the plugin (the URLs of its class realm)
+     */
+    private static String getClasspath() {
+        final ClassLoader classLoader = ValidationDaemon.class.getClassLoader();
+        if (!(classLoader instanceof URLClassLoader)) {
+            return System.getProperty("java.class.path");
+        }
+        final StringBuilder result = new StringBuilder();
+        for (URL url : ((URLClassLoader) classLoader).getURLs()) {
+            if (result.length() > 0) {
+                result.append(File.pathSeparatorChar);
+            }
+            try {
+                result.append(new File(url.toURI()).getAbsolutePath());
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                result.append(url.getPath());
+            }
+        }
+        return result.toString();
+    }
+
+    static class Result {
+
+        private final int status;
+
+        private final String report;
+
+        private final long parseMillis;
+
+        private final long validationMillis;
+
+        Result(int status, String report, long parseMillis, long validationMillis) {
+            this.status = status;
+            this.report = report;
+            this.parseMillis = parseMillis;
+            this.validationMillis = validationMillis;
+        }
+
+        boolean conforms() {
+            return status == ValidationDaemon.CONFORMS;
+        }
+
+        /**
+         * @return whether the daemon failed to validate the API, rather than the API not conforming
+         */
+        boolean isError() {
+            return status == ValidationDaemon.ERROR;
+        }
+
+        /**
+         * @return the report of the parsing or the validation, empty if it had no results
+         */
+        String getReport() {
+            return report;
+        }
+
+        long getParseMillis() {
+            return parseMillis;
+        }
+
+        long getValidationMillis() {
+            return validationMillis;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.mule.maven.exchange;
+
+import amf.core.client.platform.validation.AMFValidationReport;
+import amf.core.client.platform.validation.AMFValidationResult;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * How strictly {@link ValidateApiMojo} checks the API, from the least to the most strict.
+ * <p>
+ * Only {@link #PARSE_ONLY} is faster than {@link #FULL}, as it skips the validation. {@link #EXAMPLES_AS_WARNINGS} runs the
+ * very same validation, it just doesn't fail the build when the only violations are examples not matching their types.
+ */
+enum ValidationMode {
+
+    /**
+     * only parses the API, which checks its syntax and resolves its references
+     */
+    PARSE_ONLY("parse-only"),
+
+    /**
+     * parses and validates the API, but examples that don't match their types are reported as warnings
+     */
+    EXAMPLES_AS_WARNINGS("examples-as-warnings"),
+
+    /**
+     * parses and validates the API, examples included
+     */
+    FULL("full");
+
+    private static final String VIOLATION = "Violation";
+
+    /**
+     * ids of the AMF validations that check an example against its type, the one of the validation step and the one of
+     * the parser (raised while parsing some RAML examples)
+     */
+    private static final Set<String> EXAMPLE_VALIDATIONS = new HashSet<>(Arrays.asList(
+            "http://a.ml/vocabularies/amf/validation#example-validation-error",
+            "http://a.ml/vocabularies/amf/parser#example-validation-error"));
+
+    private final String id;
+
+    ValidationMode(String id) {
+        this.id = id;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    /**
+     * @return whether the parsed API has to be validated
+     */
+    boolean validates() {
+        return this != PARSE_ONLY;
+    }
+
+    /**
+     * @return whether the API conforms in this mode, according to the {@code report} of its validation
+     */
+    boolean conforms(AMFValidationReport report) {
+        if (this != EXAMPLES_AS_WARNINGS || report.conforms()) {
+            return report.conforms();
+        }
+        return report.results().stream().noneMatch(this::fails);
+    }
+
+    private boolean fails(AMFValidationResult result) {
+        return fails(result.severityLevel(), result.validationId());
+    }
+
+    /**
+     * @return whether a validation result with the given severity and validation id makes the API not conform in this
+     * mode
+     */
+    boolean fails(String severityLevel, String validationId) {
+        return VIOLATION.equals(severityLevel) && (this != EXAMPLES_AS_WARNINGS || !isExampleValidation(validationId));
+    }
+
+    /**
+     * @return whether the validation with the given id checks an example against its type
+     */
+    static boolean isExampleValidation(String validationId) {
+        return EXAMPLE_VALIDATIONS.contains(validationId);
+    }
+
+    /**
+     * @throws IllegalArgumentException if there's no mode with such {@code id}
+     */
+    static ValidationMode of(String id) {
+        for (ValidationMode mode : values()) {
+            if (mode.id.equals(id)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unknown validation mode [%s] (accepted modes are: [%s])", id,
+                Arrays.stream(values()).map(ValidationMode::getId).collect(Collectors.joining(","))));
+    }
+}
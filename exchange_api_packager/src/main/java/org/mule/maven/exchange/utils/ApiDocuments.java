@@ -0,0 +1,111 @@
+package org.mule.maven.exchange.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.regex.Pattern;
+
+/**
+ * Tells the API documents (RAML and OAS) apart from the rest of the files of an API, such as JSON schemas, examples or
+ * the RAML snippets that are only meant to be included.
+ */
+public final class ApiDocuments {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * unindented (so top level) {@code openapi} or {@code swagger} key of a YAML document, optionally quoted
+     */
+    private static final Pattern OAS_YAML_KEY = Pattern.compile("^([\"']?)(openapi|swagger)\\1\\s*:.*");
+
+    private ApiDocuments() {
+    }
+
+    /**
+     * @return whether the {@code file} is a RAML document (a {@code .raml} file starting with a {@code #%RAML} header,
+     * fragments included) or an OAS document (a {@code .yaml}, {@code .yml} or {@code .json} file with a top level
+     * {@code openapi} or {@code swagger} key)
+     */
+    public static boolean isApiDocument(File file) {
+        final String name = file.getName().toLowerCase();
+        try {
+            if (name.endsWith(".raml")) {
+                return isRaml(file);
+            }
+            if (name.equals("exchange.json") || !(name.endsWith(".yaml") || name.endsWith(".yml") || name.endsWith(".json"))) {
+                return false;
+            }
+            return isOas(file);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean isRaml(File file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            final String header = reader.readLine();
+            return header != null && withoutByteOrderMark(header).startsWith("#%RAML");
+        }
+    }
+
+    private static boolean isOas(File file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            reader.mark(1);
+            int first = reader.read();
+            if (first == '\uFEFF') {
+                reader.mark(1);
+                first = reader.read();
+            }
+            while (first != -1 && Character.isWhitespace(first)) {
+                reader.mark(1);
+                first = reader.read();
+            }
+            reader.reset();
+            // JSON is valid YAML, so the content tells which one it is rather than the extension
+            return first == '{' ? hasOasProperty(reader) : hasOasKey(reader);
+        }
+    }
+
+    /**
+     * @return whether the JSON object has a top level {@code openapi} or {@code swagger} property
+     */
+    private static boolean hasOasProperty(BufferedReader reader) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(reader)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = parser.getCurrentName();
+                if (field.equals("openapi") || field.equals("swagger")) {
+                    return true;
+                }
+                parser.nextToken();
+                parser.skipChildren();
+            }
+            return false;
+        } catch (JsonProcessingException e) {
+            return false;
+        }
+    }
+
+    private static boolean hasOasKey(BufferedReader reader) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (OAS_YAML_KEY.matcher(line).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String withoutByteOrderMark(String line) {
+        return line.startsWith("\uFEFF") ? line.substring(1) : line;
+    }
+}
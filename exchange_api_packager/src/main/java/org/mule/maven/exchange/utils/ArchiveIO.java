@@ -0,0 +1,273 @@
+package org.mule.maven.exchange.utils;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.Enumeration;
+import java.util.function.Predicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Shared I/O layer of every zip, unzip and copy done by the packager mojos.
+ * <p>
+ * Buffers and {@link Deflater}s are pooled per thread instead of being allocated per file, files are read and written
+ * through {@link FileChannel}s (copies are done with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}),
+ * and directories are iterated with {@link DirectoryStream}s, so that no full list of files is ever kept in memory.
+ */
+public final class ArchiveIO {
+
+    static final int BUFFER_SIZE = 256 * 1024;
+
+    private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    private static final ThreadLocal<Deflater> DEFLATERS = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+
+    private ArchiveIO() {
+    }
+
+    /**
+     * Callback of {@link #walk(File, FileFilter, String, FileVisitor)}.
+     */
+    public interface FileVisitor {
+
+        /**
+         * @param name relative path of the {@code file} from the walked directory, using '/' as separator
+         * @param file the visited file
+         */
+        void visit(String name, File file) throws IOException;
+    }
+
+    /**
+     * Walks every file accepted by the {@code fileFilter} under the {@code directory}, recursively, streaming the
+     * content of each directory instead of listing it.
+     *
+     * @param basePath prefix of the names passed to the {@code visitor}, or null
+     */
+    public static void walk(File directory, FileFilter fileFilter, String basePath, FileVisitor visitor) throws IOException {
+        if (!directory.isDirectory()) {
+            return;
+        }
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(directory.toPath())) {
+            for (Path child : children) {
+                // the filters expect the same kind of File that File#listFiles would have created
+                final File file = new File(directory, child.getFileName().toString());
+                if (!fileFilter.accept(file)) {
+                    continue;
+                }
+                final String name = basePath != null ? basePath + "/" + file.getName() : file.getName();
+                if (file.isDirectory()) {
+                    walk(file, fileFilter, name, visitor);
+                } else {
+                    visitor.visit(name, file);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the whole content of the {@code file}, read through its channel straight into the resulting array
+     */
+    public static byte[] readFully(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IOException(String.format("File [%s] too large to be read in memory", file.getAbsolutePath()));
+            }
+            final ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                // reading until the whole file is in the buffer
+            }
+            if (buffer.hasRemaining()) {
+                final byte[] result = new byte[buffer.position()];
+                System.arraycopy(buffer.array(), 0, result, 0, result.length);
+                return result;
+            }
+            return buffer.array();
+        }
+    }
+
+    /**
+     * Deflates the {@code content} (raw deflate, as stored in zip entries) with the {@link Deflater} of the current
+     * thread.
+     */
+    public static byte[] deflate(byte[] content) {
+        final Deflater deflater = DEFLATERS.get();
+        final byte[] buffer = BUFFERS.get();
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, content.length / 2));
+        try {
+            deflater.setInput(content);
+            deflater.finish();
+            while (!deflater.finished()) {
+                final int length = deflater.deflate(buffer);
+                compressed.write(buffer, 0, length);
+            }
+        } finally {
+            deflater.reset();
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * Extracts every entry of the {@code zipFile} into the {@code targetDirectory}.
+     *
+     * @throws ZipException if any entry points outside of the {@code targetDirectory}
+     */
+    public static void unzip(File zipFile, File targetDirectory) throws IOException {
+        final Path target = targetDirectory.toPath().toAbsolutePath().normalize();
+        Files.createDirectories(target);
+        // ZipInputStream reads the compressed data in small chunks, which would be a system call each without the buffer
+        try (ZipInputStream zipInputStream = new ZipInputStream(new BufferedInputStream(Files.newInputStream(zipFile.toPath()), BUFFER_SIZE), StandardCharsets.UTF_8)) {
+            ZipEntry entry;
+            while ((entry = zipInputStream.getNextEntry()) != null) {
+                final Path entryPath = target.resolve(entry.getName()).normalize();
+                if (!entryPath.startsWith(target)) {
+                    throw new ZipException(String.format("Entry [%s] of [%s] is outside of the target directory", entry.getName(), zipFile.getAbsolutePath()));
+                }
+                if (entry.isDirectory()) {
+                    Files.createDirectories(entryPath);
+                } else {
+                    Files.createDirectories(entryPath.getParent());
+                    write(zipInputStream, entryPath);
+                }
+                zipInputStream.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Extracts the entries of the {@code zipFile} accepted by the {@code entryFilter} into the {@code targetDirectory},
+     * without inflating the rest of them.
+     *
+     * @throws ZipException if any entry points outside of the {@code targetDirectory}
+     */
+    public static void unzip(File zipFile, File targetDirectory, Predicate<String> entryFilter) throws IOException {
+        final Path target = targetDirectory.toPath().toAbsolutePath().normalize();
+        try (ZipFile zip = new ZipFile(zipFile, StandardCharsets.UTF_8)) {
+            final Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory() || !entryFilter.test(entry.getName())) {
+                    continue;
+                }
+                final Path entryPath = target.resolve(entry.getName()).normalize();
+                if (!entryPath.startsWith(target)) {
+                    throw new ZipException(String.format("Entry [%s] of [%s] is outside of the target directory", entry.getName(), zipFile.getAbsolutePath()));
+                }
+                Files.createDirectories(entryPath.getParent());
+                try (InputStream inputStream = zip.getInputStream(entry)) {
+                    write(inputStream, entryPath);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the remaining content of the {@code inputStream} into the {@code target} file (replacing it).
+     */
+    public static void write(InputStream inputStream, Path target) throws IOException {
+        final byte[] buffer = BUFFERS.get();
+        try (FileChannel channel = create(target)) {
+            int length;
+            while ((length = inputStream.read(buffer)) != -1) {
+                final ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, length);
+                while (chunk.hasRemaining()) {
+                    channel.write(chunk);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the {@code source} file into the {@code target} one (replacing it) through a channel transfer.
+     */
+    public static void copyFile(File source, File target, boolean preserveFileDate) throws IOException {
+        try (FileChannel in = FileChannel.open(source.toPath(), StandardOpenOption.READ);
+             FileChannel out = create(target.toPath())) {
+            final long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+        }
+        if (preserveFileDate) {
+            target.setLastModified(source.lastModified());
+        }
+    }
+
+    /**
+     * Opens a new file for writing, replacing the existing one instead of truncating it, so that files that are hard
+     * links to shared content (see {@link FragmentCache}) are never written through.
+     */
+    private static FileChannel create(Path target) throws IOException {
+        Files.deleteIfExists(target);
+        return FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * @return the CRC-32 of the content of the {@code file}, the same checksum zip entries carry
+     */
+    public static long crc32(File file) throws IOException {
+        final CRC32 crc = new CRC32();
+        final byte[] buffer = BUFFERS.get();
+        try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+            int length;
+            while ((length = inputStream.read(buffer)) != -1) {
+                crc.update(buffer, 0, length);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * @return the hex encoded SHA-256 of the content of the {@code file}
+     */
+    public static String sha256(File file) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        final byte[] buffer = BUFFERS.get();
+        try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+            int length;
+            while ((length = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, length);
+            }
+        }
+        final StringBuilder result = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Copies every file accepted by the {@code fileFilter} under the {@code sourceDirectory} into the
+     * {@code targetDirectory}, keeping the same structure.
+     */
+    public static void copyDirectory(File sourceDirectory, File targetDirectory, FileFilter fileFilter, boolean preserveFileDate) throws IOException {
+        walk(sourceDirectory, fileFilter, null, (name, file) -> {
+            final File target = new File(targetDirectory, name);
+            Files.createDirectories(target.getParentFile().toPath());
+            copyFile(file, target, preserveFileDate);
+        });
+    }
+}
@@ -0,0 +1,132 @@
+package org.mule.maven.exchange.utils;
+
+import org.apache.maven.artifact.Artifact;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the Exchange dependencies of a project and where each of them goes within {@code exchange_modules}, built
+ * once per build from the resolved artifacts.
+ * <p>
+ * Exchange lays the dependencies out as {@code <groupId>/<assetId>/<version>} with the literal groupId, while Maven
+ * repositories split it by dots ({@code org/mule/...}). Both layouts are indexed, so that a path in either of them is
+ * resolved with a few hash lookups regardless of the number of dependencies, and dotted and UUID groupIds are handled
+ * the same way.
+ */
+public class DependencyLayout {
+
+    private final List<Module> modules;
+
+    private final Map<String, String> repositoryIndex;
+
+    private final Map<String, String> exchangeIndex;
+
+    private DependencyLayout(List<Module> modules) {
+        this.modules = Collections.unmodifiableList(modules);
+        this.repositoryIndex = new HashMap<>(modules.size() * 2);
+        this.exchangeIndex = new HashMap<>(modules.size() * 2);
+        for (Module module : modules) {
+            exchangeIndex.put(module.getPath(), module.getPath());
+            repositoryIndex.put(module.groupId.replace('.', '/') + "/" + module.assetId + "/" + module.version, module.getPath());
+        }
+    }
+
+    /**
+     * @param artifacts resolved artifacts of the project (see {@code MavenProject#getArtifacts()}), only the zips are
+     *                  taken into account
+     */
+    public static DependencyLayout of(Collection<?> artifacts) {
+        final List<Module> modules = new ArrayList<>();
+        for (Object dependency : artifacts) {
+            final Artifact artifact = (Artifact) dependency;
+            final File file = artifact.getFile();
+            if (file != null && file.isFile() && file.getName().endsWith(".zip")) {
+                modules.add(new Module(artifact.getGroupId(), artifact.getArtifactId(), artifact.getBaseVersion(), file));
+            }
+        }
+        return new DependencyLayout(modules);
+    }
+
+    /**
+     * @return the Exchange dependencies, in resolution order
+     */
+    public List<Module> getModules() {
+        return modules;
+    }
+
+    /**
+     * @param path path within {@code exchange_modules} (using '/' as separator) in either the Exchange or the Maven
+     *             repository layout
+     * @return the same path in the Exchange layout, or the given {@code path} if it doesn't belong to any dependency
+     */
+    public String toExchangePath(String path) {
+        // the GAV is at least 3 segments long, the shortest matching prefix wins as versions can't contain a '/'
+        int separator = path.indexOf('/', path.indexOf('/', path.indexOf('/') + 1) + 1);
+        while (separator > 0) {
+            final String prefix = path.substring(0, separator);
+            if (exchangeIndex.containsKey(prefix)) {
+                return path;
+            }
+            final String exchangePrefix = repositoryIndex.get(prefix);
+            if (exchangePrefix != null) {
+                return exchangePrefix + path.substring(separator);
+            }
+            separator = path.indexOf('/', separator + 1);
+        }
+        return path;
+    }
+
+    /**
+     * An Exchange dependency: its coordinates and its archive.
+     */
+    public static class Module {
+
+        private final String groupId;
+        private final String assetId;
+        private final String version;
+        private final File archive;
+        private final String path;
+
+        Module(String groupId, String assetId, String version, File archive) {
+            this.groupId = groupId;
+            this.assetId = assetId;
+            this.version = version;
+            this.archive = archive;
+            this.path = groupId + "/" + assetId + "/" + version;
+        }
+
+        public String getGroupId() {
+            return groupId;
+        }
+
+        public String getAssetId() {
+            return assetId;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        public File getArchive() {
+            return archive;
+        }
+
+        /**
+         * @return {@code <groupId>/<assetId>/<version>}, where the dependency goes within {@code exchange_modules}
+         */
+        public String getPath() {
+            return path;
+        }
+
+        @Override
+        public String toString() {
+            return groupId + ":" + assetId + ":" + version;
+        }
+    }
+}
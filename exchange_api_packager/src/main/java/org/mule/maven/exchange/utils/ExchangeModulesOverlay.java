@@ -0,0 +1,143 @@
+package org.mule.maven.exchange.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Read only view of the {@code exchange_modules} directory that serves the content of the fragments straight from the
+ * dependency archives, so that nothing has to be extracted to disk.
+ * <p>
+ * A path such as {@code <groupId>/<assetId>/<version>/types/user.raml} is served by the entry {@code types/user.raml}
+ * of the archives registered for that GAV. When several archives are registered for the same GAV, the last one wins,
+ * as it would when extracting them in order into the same directory.
+ * <p>
+ * Archives are opened on first use and can be read concurrently.
+ */
+public class ExchangeModulesOverlay implements Closeable {
+
+    private final Map<String, List<Archive>> archives = new HashMap<>();
+
+    private final DependencyLayout layout;
+
+    public ExchangeModulesOverlay() {
+        this.layout = null;
+    }
+
+    /**
+     * @param layout dependencies of the project, every one of them is {@link #add(String, String, String, File) added}
+     *               to the overlay, which also serves them under their Maven repository layout path
+     */
+    public ExchangeModulesOverlay(DependencyLayout layout) {
+        this.layout = layout;
+        for (DependencyLayout.Module module : layout.getModules()) {
+            add(module.getGroupId(), module.getAssetId(), module.getVersion(), module.getArchive());
+        }
+    }
+
+    /**
+     * Registers the {@code archive} of a dependency, served under {@code <groupId>/<assetId>/<version>}.
+     */
+    public ExchangeModulesOverlay add(String groupId, String assetId, String version, File archive) {
+        archives.computeIfAbsent(groupId + "/" + assetId + "/" + version, gav -> new ArrayList<>()).add(0, new Archive(archive));
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return archives.isEmpty();
+    }
+
+    /**
+     * @param path path relative to the {@code exchange_modules} directory, using '/' as separator
+     * @return the content of the entry, or null if no archive has it
+     */
+    public byte[] read(String path) throws IOException {
+        final String relative = path.startsWith("/") ? path.substring(1) : path;
+        final String normalized = layout != null ? layout.toExchangePath(relative) : relative;
+        final int assetSeparator = normalized.indexOf('/');
+        final int versionSeparator = assetSeparator < 0 ? -1 : normalized.indexOf('/', assetSeparator + 1);
+        final int entrySeparator = versionSeparator < 0 ? -1 : normalized.indexOf('/', versionSeparator + 1);
+        if (entrySeparator < 0) {
+            return null;
+        }
+        final List<Archive> candidates = archives.get(normalized.substring(0, entrySeparator));
+        if (candidates == null) {
+            return null;
+        }
+        final String entryName = normalized.substring(entrySeparator + 1);
+        for (Archive archive : candidates) {
+            final byte[] content = archive.read(entryName);
+            if (content != null) {
+                return content;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException closeException = null;
+        for (List<Archive> gavArchives : archives.values()) {
+            for (Archive archive : gavArchives) {
+                try {
+                    archive.close();
+                } catch (IOException e) {
+                    closeException = e;
+                }
+            }
+        }
+        if (closeException != null) {
+            throw closeException;
+        }
+    }
+
+    private static class Archive implements Closeable {
+
+        private final File file;
+
+        private ZipFile zipFile;
+
+        Archive(File file) {
+            this.file = file;
+        }
+
+        private synchronized ZipFile open() throws IOException {
+            if (zipFile == null) {
+                zipFile = new ZipFile(file);
+            }
+            return zipFile;
+        }
+
+        byte[] read(String entryName) throws IOException {
+            final ZipFile zip = open();
+            final ZipEntry entry = zip.getEntry(entryName);
+            if (entry == null || entry.isDirectory()) {
+                return null;
+            }
+            try (InputStream inputStream = zip.getInputStream(entry)) {
+                final ByteArrayOutputStream content = new ByteArrayOutputStream(entry.getSize() > 0 ? (int) entry.getSize() : 8192);
+                final byte[] buffer = new byte[8192];
+                int length;
+                while ((length = inputStream.read(buffer)) != -1) {
+                    content.write(buffer, 0, length);
+                }
+                return content.toByteArray();
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (zipFile != null) {
+                zipFile.close();
+            }
+        }
+    }
+}
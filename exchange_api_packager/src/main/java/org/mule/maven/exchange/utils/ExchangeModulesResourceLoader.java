@@ -3,53 +3,437 @@ package org.mule.maven.exchange.utils;
 import amf.core.client.common.remote.Content;
 import amf.core.client.platform.resource.ClientResourceLoader;
 import amf.core.client.platform.resource.ResourceNotFound;
-import org.apache.commons.io.FileUtils;
 
 import java.io.File;
+import java.io.FileFilter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+/**
+ * Serves the {@code exchange_modules} references of an API to AMF, from the {@link ExchangeModulesOverlay} (if any) or
+ * otherwise from the files under the project root.
+ * <p>
+ * The {@code exchange_modules} tree is indexed once, on the first fetch, so that most resources are resolved without
+ * touching the disk. References are normalized (resolving {@code ./} and {@code ../} segments) before the lookup, and
+ * the ones missing from the index are checked on disk once (e.g.: a reference with a different case on a case
+ * insensitive file system) before failing. Contents are decoded as UTF-8 (large files through a memory mapped buffer) and kept in a LRU
+ * cache bounded both by bytes and entries, while missing resources are remembered and failed right away. Resources
+ * that exist but can't be read are failed with the read error, and read again on the next fetch.
+ * <p>
+ * When an executor is {@link #withExecutor(ExecutorService) set}, resources are loaded on it instead of on the calling
+ * thread, the loader also serves the files of the project itself, and {@link #prefetch()} loads every file of the
+ * project (the ones accepted by its {@link #withProjectFilter(FileFilter) filter}) and {@code exchange_modules} trees in
+ * parallel, so that AMF finds them already in memory.
+ */
 public class ExchangeModulesResourceLoader implements ClientResourceLoader {
 
+    private static final Logger LOGGER = Logger.getLogger(ExchangeModulesResourceLoader.class.getName());
+
     private static final String EXCHANGE_MODULES = "/exchange_modules/";
 
-    private static final String EXCHANGE_MODULES_REGEX = ".*(\\/exchange_modules\\/.*)";
+    static final long DEFAULT_MAX_CACHED_BYTES = 64 * 1024 * 1024;
 
-    private static final Pattern EXCHANGE_MODULES_PATTERN = Pattern.compile(EXCHANGE_MODULES_REGEX);
+    static final int DEFAULT_MAX_CACHED_ENTRIES = 4096;
 
+    /**
+     * files from this size on are decoded from a memory mapped buffer instead of being read on the heap first
+     */
+    private static final long MAPPED_THRESHOLD = 1024 * 1024;
 
     private final String rootProjectPath;
 
+    private final ExchangeModulesOverlay overlay;
+
+    private final long maxCachedBytes;
+
+    private final int maxCachedEntries;
+
+    private final LinkedHashMap<String, String> contents = new LinkedHashMap<>(64, 0.75f, true);
+
+    private long cachedBytes;
+
+    private final Set<String> notFound = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    private volatile Map<String, File> index;
+
+    private volatile Map<String, File> projectIndex;
+
+    private volatile ExecutorService executor;
+
+    private volatile FileFilter projectFilter;
+
+    private final Map<String, CompletableFuture<String>> loading = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong notFoundHits = new AtomicLong();
+
+    private final AtomicLong bytesRead = new AtomicLong();
+
     public ExchangeModulesResourceLoader(String rootProjectPath){
+        this(rootProjectPath, null);
+    }
+
+    /**
+     * @param overlay serves the content of the dependency archives, looked up before the files under
+     *                {@code rootProjectPath}, or null to only read files
+     */
+    public ExchangeModulesResourceLoader(String rootProjectPath, ExchangeModulesOverlay overlay){
+        this(rootProjectPath, overlay, DEFAULT_MAX_CACHED_BYTES, DEFAULT_MAX_CACHED_ENTRIES);
+    }
+
+    /**
+     * @param maxCachedBytes   maximum size of the cached contents (counting 2 bytes per char), files larger than this are
+     *                         never cached
+     * @param maxCachedEntries maximum number of cached contents
+     */
+    public ExchangeModulesResourceLoader(String rootProjectPath, ExchangeModulesOverlay overlay, long maxCachedBytes, int maxCachedEntries){
         this.rootProjectPath = rootProjectPath;
+        this.overlay = overlay;
+        this.maxCachedBytes = maxCachedBytes;
+        this.maxCachedEntries = maxCachedEntries;
+    }
+
+    /**
+     * Loads the resources on the given {@code executor} from now on (the caller owns it, and has to shut it down).
+     */
+    public ExchangeModulesResourceLoader withExecutor(ExecutorService executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Only indexes and prefetches the files of the project accepted by the given {@code filter} (e.g.: to leave the build
+     * directory and the VCS metadata out when the root is the base directory of the project), files of the
+     * {@code exchange_modules} directory are never part of it anyway.
+     */
+    public ExchangeModulesResourceLoader withProjectFilter(FileFilter filter) {
+        this.projectFilter = filter;
+        return this;
     }
 
     @Override
     public CompletableFuture<Content> fetch(String resource) {
-        Matcher matcher = EXCHANGE_MODULES_PATTERN.matcher(resource);
-        if (matcher.matches()){
-            String group = matcher.group(matcher.groupCount());
-            File file = new File(rootProjectPath, group);
+        final String key = toKey(resource);
+        if (key == null) {
+            return failedFuture(resource);
+        }
+        if (notFound.contains(key)) {
+            notFoundHits.incrementAndGet();
+            return failedFuture(resource);
+        }
+        final String cached = getCached(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return CompletableFuture.completedFuture(new Content(cached, resource));
+        }
+        misses.incrementAndGet();
+        if (executor != null) {
+            return loadAsync(key).thenCompose(content -> content != null ? CompletableFuture.completedFuture(new Content(content, resource)) : failedFuture(resource));
+        }
+        final String content;
+        try {
+            content = loadAndCache(key);
+        } catch (UncheckedIOException e) {
+            final CompletableFuture<Content> result = new CompletableFuture<>();
+            result.completeExceptionally(e);
+            return result;
+        }
+        return content != null ? CompletableFuture.completedFuture(new Content(content, resource)) : failedFuture(resource);
+    }
+
+    /**
+     * Starts loading every file of the project and of its {@code exchange_modules} directory (unless there's an
+     * overlay) in the background, as long as they fit in the cache. Does nothing if there's no executor.
+     *
+     * @return the number of files being prefetched
+     */
+    public int prefetch() {
+        if (executor == null) {
+            return 0;
+        }
+        int count = 0;
+        long budget = maxCachedBytes;
+        try {
+            final Map<String, File> files = new LinkedHashMap<>(overlay == null ? getIndex() : Collections.emptyMap());
+            files.putAll(getProjectIndex());
+            for (Map.Entry<String, File> file : files.entrySet()) {
+                final long weight = file.getValue().length() * 2;
+                if (count >= maxCachedEntries) {
+                    break;
+                }
+                if (weight > budget) {
+                    continue;
+                }
+                budget -= weight;
+                loadAsync(file.getKey());
+                count++;
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, String.format("Unable to list the resources to prefetch from [%s]", rootProjectPath), e);
+        }
+        return count;
+    }
+
+    private CompletableFuture<String> loadAsync(String key) {
+        final CompletableFuture<String> result = loading.computeIfAbsent(key, k -> CompletableFuture.supplyAsync(() -> loadAndCache(k), executor));
+        result.whenComplete((content, e) -> loading.remove(key, result));
+        return result;
+    }
+
+    /**
+     * @return the content of the resource (caching it), or null if it doesn't exist (remembering it)
+     * @throws UncheckedIOException if the resource exists but can't be read, which is not remembered
+     */
+    private String loadAndCache(String key) {
+        final String cached = getCached(key);
+        if (cached != null) {
+            return cached;
+        }
+        String content;
+        try {
+            content = load(key);
+        } catch (NoSuchFileException e) {
+            // deleted after it was indexed
+            content = null;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, String.format("Unable to read the resource [%s]", key), e);
+            throw new UncheckedIOException(e);
+        }
+        if (content == null) {
+            notFound.add(key);
+        } else {
+            putCached(key, content);
+        }
+        return content;
+    }
+
+    /**
+     * @return the path of the resource from the {@code exchange_modules} directory on, the path of the file of the
+     * project if it's one and there's an executor, or null if the resource can't be served by this loader
+     */
+    private String toKey(String resource) {
+        final String path = normalize(resource);
+        // same as matching .*(/exchange_modules/.*), the last occurrence wins
+        final int offset = path.lastIndexOf(EXCHANGE_MODULES);
+        if (offset >= 0) {
+            return path.substring(offset);
+        }
+        if (executor != null && path.startsWith("file:")) {
             try {
-                String stringContent = FileUtils.readFileToString(file);
-                return CompletableFuture.completedFuture(new Content(stringContent,resource));
+                final String key = toProjectKey(path.substring("file:".length()));
+                return getProjectIndex().containsKey(key) || isProjectFile(key) ? key : null;
             } catch (IOException e) {
-                e.fillInStackTrace();
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the {@code resource} without {@code .} segments, and with every {@code ..} segment resolved against the
+     * one before it
+     */
+    static String normalize(String resource) {
+        if (!resource.contains("/.")) {
+            return resource;
+        }
+        final Deque<String> result = new ArrayDeque<>();
+        for (String segment : resource.split("/", -1)) {
+            if (segment.equals("..") && !result.isEmpty() && !result.peekLast().isEmpty()
+                    && !result.peekLast().equals("..") && !result.peekLast().endsWith(":")) {
+                result.removeLast();
+            } else if (!segment.equals(".")) {
+                result.addLast(segment);
+            }
+        }
+        return String.join("/", result);
+    }
+
+    private static String toProjectKey(String path) {
+        int start = 0;
+        while (start < path.length() && (path.charAt(start) == '/' || path.charAt(start) == '\\')) {
+            start++;
+        }
+        return path.substring(start).replace('\\', '/');
+    }
+
+    /**
+     * @param group path of the resource from the {@code exchange_modules} directory on, such as {@code /exchange_modules/g/a/v/file.raml},
+     *              or key of a file of the project
+     * @return the content of the resource, or null if it doesn't exist. When there's an overlay, {@code exchange_modules}
+     * resources are only served by it: the {@code exchange_modules} directory of the project is neither part of the API
+     * sources nor of the validation stamp, so whatever is left there must not be resolved
+     */
+    String load(String group) throws IOException {
+        final boolean exchangeModule = group.startsWith(EXCHANGE_MODULES);
+        if (overlay != null && exchangeModule) {
+            final byte[] content = overlay.read(group.substring(EXCHANGE_MODULES.length()));
+            if (content == null) {
+                return null;
+            }
+            bytesRead.addAndGet(content.length);
+            return new String(content, StandardCharsets.UTF_8);
+        }
+        File file = exchangeModule ? getIndex().get(group) : getProjectIndex().get(group);
+        if (file == null) {
+            // created after the index was built, or referenced with a different case on a case insensitive file system
+            final File candidate = exchangeModule ? new File(rootProjectPath, group) : toProjectFile(group);
+            file = candidate.isFile() ? candidate : null;
+        }
+        return file != null ? read(file) : null;
+    }
+
+    private static File toProjectFile(String key) {
+        return new File(File.separatorChar == '/' ? "/" + key : key);
+    }
+
+    /**
+     * @return whether the {@code key} is a file under the project root that is not in its index
+     */
+    private boolean isProjectFile(String key) {
+        final String root = toProjectKey(new File(rootProjectPath).getAbsolutePath());
+        return key.startsWith(root.endsWith("/") ? root : root + "/") && toProjectFile(key).isFile();
+    }
+
+    private String read(File file) throws IOException {
+        final long size = file.length();
+        bytesRead.addAndGet(size);
+        if (size < MAPPED_THRESHOLD) {
+            return new String(ArchiveIO.readFully(file), StandardCharsets.UTF_8);
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                    .decode(buffer)
+                    .toString();
+        }
+    }
+
+    /**
+     * @return every file of the {@code exchange_modules} directory of the project, by its path from the
+     * {@code exchange_modules} directory on (e.g.: {@code /exchange_modules/g/a/v/file.raml})
+     */
+    private Map<String, File> getIndex() throws IOException {
+        Map<String, File> result = index;
+        if (result == null) {
+            synchronized (this) {
+                result = index;
+                if (result == null) {
+                    final Map<String, File> files = new HashMap<>();
+                    ArchiveIO.walk(new File(rootProjectPath, EXCHANGE_MODULES), file -> true, EXCHANGE_MODULES.substring(0, EXCHANGE_MODULES.length() - 1),
+                            (name, file) -> files.put(name, file));
+                    index = result = files;
+                }
             }
         }
-        return failedFuture(resource);
+        return result;
+    }
+
+    /**
+     * @return every file of the project accepted by the {@link #withProjectFilter(FileFilter) project filter}, but the
+     * ones in the {@code exchange_modules} directory, by their absolute path (using '/' as separator and without the
+     * leading one)
+     */
+    private Map<String, File> getProjectIndex() throws IOException {
+        Map<String, File> result = projectIndex;
+        if (result == null) {
+            synchronized (this) {
+                result = projectIndex;
+                if (result == null) {
+                    final Map<String, File> files = new HashMap<>();
+                    final File root = new File(rootProjectPath).getAbsoluteFile();
+                    final File exchangeModules = new File(root, EXCHANGE_MODULES);
+                    final FileFilter filter = projectFilter;
+                    ArchiveIO.walk(root, file -> !file.equals(exchangeModules) && (filter == null || filter.accept(file)), null,
+                            (name, file) -> files.put(toProjectKey(file.getAbsolutePath()), file));
+                    projectIndex = result = files;
+                }
+            }
+        }
+        return result;
+    }
+
+    private synchronized String getCached(String group) {
+        return contents.get(group);
+    }
+
+    private synchronized void putCached(String group, String content) {
+        final long weight = weight(content);
+        if (weight > maxCachedBytes || maxCachedEntries <= 0) {
+            return;
+        }
+        final String previous = contents.put(group, content);
+        if (previous != null) {
+            cachedBytes -= weight(previous);
+        }
+        cachedBytes += weight;
+        final Iterator<String> eldest = contents.values().iterator();
+        while ((cachedBytes > maxCachedBytes || contents.size() > maxCachedEntries) && eldest.hasNext()) {
+            cachedBytes -= weight(eldest.next());
+            eldest.remove();
+        }
+    }
+
+    private static long weight(String content) {
+        return content.length() * 2L;
     }
 
     private CompletableFuture<Content> failedFuture(String resource) {
-        return CompletableFuture.supplyAsync(() -> {
-            throw new RuntimeException(new ResourceNotFound(resource));
-        });
+        final CompletableFuture<Content> result = new CompletableFuture<>();
+        result.completeExceptionally(new RuntimeException(new ResourceNotFound(resource)));
+        return result;
     }
 
     @Override
     public boolean accepts(String resource) {
-        return resource.contains(EXCHANGE_MODULES);
+        return resource.contains(EXCHANGE_MODULES) || (executor != null && toKey(resource) != null);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getNotFoundHits() {
+        return notFoundHits.get();
+    }
+
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    /**
+     * @return a summary of the metrics of the loader, to be logged
+     */
+    public String getStatistics() {
+        return String.format("hits [%d], misses [%d], not found hits [%d], bytes read [%d]", getHits(), getMisses(), getNotFoundHits(), getBytesRead());
     }
 }
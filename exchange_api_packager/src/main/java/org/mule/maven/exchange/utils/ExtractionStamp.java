@@ -0,0 +1,193 @@
+package org.mule.maven.exchange.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Record of the extraction of a dependency archive: its checksum and the CRC and size of every extracted entry, as
+ * listed by the central directory of the zip, along with the modification time of the extracted file.
+ * <p>
+ * Comparing the stamp of the previous extraction with the current archive tells which entries have to be written (or
+ * deleted) again, without inflating the ones that didn't change. An extracted file is trusted when it still has the
+ * size and modification time it was extracted with, otherwise its content is checked against the CRC of the entry.
+ */
+public class ExtractionStamp {
+
+    private static final String HEADER = "# exchange dependency stamp v2";
+    private static final String CHECKSUM = "checksum=";
+    private static final String ENTRY = "entry:";
+
+    private final String checksum;
+
+    private final Map<String, Entry> entries;
+
+    private ExtractionStamp(String checksum, Map<String, Entry> entries) {
+        this.checksum = checksum;
+        this.entries = entries;
+    }
+
+    /**
+     * @return the stamp of the current content of the {@code archive}, only its central directory is read
+     */
+    public static ExtractionStamp of(File archive, String checksum) throws IOException {
+        final Map<String, Entry> entries = new LinkedHashMap<>();
+        try (ZipFile zipFile = new ZipFile(archive, StandardCharsets.UTF_8)) {
+            final Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+            while (zipEntries.hasMoreElements()) {
+                final ZipEntry zipEntry = zipEntries.nextElement();
+                if (!zipEntry.isDirectory()) {
+                    entries.put(zipEntry.getName(), new Entry(zipEntry.getCrc(), zipEntry.getSize(), Entry.UNKNOWN_TIME));
+                }
+            }
+        }
+        return new ExtractionStamp(checksum, entries);
+    }
+
+    /**
+     * @return the previously {@link #save(File, File) saved} stamp, or null if there's none or it can't be read (e.g.:
+     * saved by a previous version)
+     */
+    public static ExtractionStamp read(File stampFile) {
+        if (!stampFile.isFile()) {
+            return null;
+        }
+        try {
+            final List<String> lines = Files.readAllLines(stampFile.toPath(), StandardCharsets.UTF_8);
+            if (lines.size() < 2 || !HEADER.equals(lines.get(0)) || !lines.get(1).startsWith(CHECKSUM)) {
+                return null;
+            }
+            final Map<String, Entry> entries = new LinkedHashMap<>();
+            for (String line : lines.subList(2, lines.size())) {
+                // entry:<crc>|<size>|<modification time>|<name>, the name goes last as it might contain any character
+                final String[] parts = line.substring(ENTRY.length()).split("\\|", 4);
+                entries.put(parts[3], new Entry(Long.parseUnsignedLong(parts[0], 16), Long.parseLong(parts[1]), Long.parseLong(parts[2])));
+            }
+            return new ExtractionStamp(lines.get(1).substring(CHECKSUM.length()), entries);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Saves the stamp along with the modification time of each entry as it was extracted into the {@code directory}.
+     */
+    public void save(File stampFile, File directory) throws IOException {
+        final List<String> lines = new ArrayList<>(entries.size() + 2);
+        lines.add(HEADER);
+        lines.add(CHECKSUM + checksum);
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            final long lastModified = new File(directory, entry.getKey()).lastModified();
+            lines.add(ENTRY + Long.toHexString(entry.getValue().crc) + "|" + entry.getValue().size + "|" + lastModified + "|" + entry.getKey());
+        }
+        Files.createDirectories(stampFile.getAbsoluteFile().getParentFile().toPath());
+        Files.write(stampFile.toPath(), lines, StandardCharsets.UTF_8);
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * @return true if every entry of this stamp is in the {@code directory}, with the expected size and content
+     */
+    public boolean isExtractedIn(File directory) {
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            if (!isExtracted(directory, entry.getKey(), entry.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param previous stamp of the previous extraction into the {@code directory}, or null
+     * @return the entries of this stamp that are new, changed (by CRC or size) or missing in the {@code directory}
+     */
+    public List<String> getChangedEntries(ExtractionStamp previous, File directory) {
+        final List<String> result = new ArrayList<>();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            final Entry previousEntry = previous != null ? previous.entries.get(entry.getKey()) : null;
+            // the previous entry is the one that knows when the file was extracted
+            if (!entry.getValue().equals(previousEntry) || !isExtracted(directory, entry.getKey(), previousEntry)) {
+                result.add(entry.getKey());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param previous stamp of the previous extraction, or null
+     * @return the entries of the {@code previous} stamp that are no longer in this one
+     */
+    public List<String> getRemovedEntries(ExtractionStamp previous) {
+        final List<String> result = new ArrayList<>();
+        if (previous != null) {
+            for (String name : previous.entries.keySet()) {
+                if (!entries.containsKey(name)) {
+                    result.add(name);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean isExtracted(File directory, String name, Entry entry) {
+        final File file = new File(directory, name);
+        if (!file.isFile() || (entry.size >= 0 && file.length() != entry.size)) {
+            return false;
+        }
+        if (entry.lastModified != Entry.UNKNOWN_TIME && file.lastModified() == entry.lastModified) {
+            return true;
+        }
+        // touched (or extracted by a previous version), only its content tells whether it was modified
+        try {
+            return entry.crc >= 0 && ArchiveIO.crc32(file) == entry.crc;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static class Entry {
+
+        static final long UNKNOWN_TIME = -1;
+
+        final long crc;
+        final long size;
+        /**
+         * modification time of the extracted file, not part of the identity of the entry
+         */
+        final long lastModified;
+
+        Entry(long crc, long size, long lastModified) {
+            this.crc = crc;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            final Entry entry = (Entry) o;
+            return crc == entry.crc && size == entry.size;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(crc) + Long.hashCode(size);
+        }
+    }
+}
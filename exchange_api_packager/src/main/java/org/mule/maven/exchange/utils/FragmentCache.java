@@ -0,0 +1,250 @@
+package org.mule.maven.exchange.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Machine wide cache of extracted Exchange fragments, shared by every project (and every concurrent build) of the
+ * machine.
+ * <p>
+ * Fragments are immutable for a given GAV, so each archive is extracted once into
+ * {@code <directory>/<groupId>/<assetId>/<version>/<sha256 of the archive>} and then linked into the
+ * {@code exchange_modules} of each project. Extractions are done in a temporal directory which is then renamed, so
+ * that a concurrent build either sees the whole fragment or nothing at all. Temporal directories left behind by
+ * builds that were killed are deleted once they are old enough.
+ * <p>
+ * Projects get hard links to the cached files when the file system allows it, or copies otherwise. As a hard link
+ * shares the content with the cache, cached files are made read only, and hard links are only used on POSIX file
+ * systems (where read only files can still be deleted by {@code mvn clean}). Along with the extracted files, the
+ * cache stores the size and modification time of each of them, which are checked before every use: an entry that was
+ * modified anyway is discarded and extracted again.
+ */
+public class FragmentCache {
+
+    private static final String TEMPORAL_SUFFIX = ".tmp-";
+
+    private static final String CONTENT = "content";
+
+    private static final String INDEX = "index";
+
+    /**
+     * temporal directories older than this are considered left behind by a build that was killed
+     */
+    private static final long STALE_TEMPORAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final File directory;
+
+    private volatile Boolean hardLinks;
+
+    /**
+     * @param directory root directory of the cache, it's created on demand
+     */
+    public FragmentCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Populates the {@code targetDirectory} with the content of the {@code archive}, extracting it into the cache first
+     * if it wasn't there yet.
+     *
+     * @param groupId    groupId of the fragment
+     * @param assetId    assetId of the fragment
+     * @param version    version of the fragment
+     * @param archive    zip of the fragment
+     * @param targetDirectory where the content of the {@code archive} is linked (or copied) to
+     */
+    public void extract(String groupId, String assetId, String version, File archive, File targetDirectory) throws IOException {
+        extract(groupId, assetId, version, archive, ArchiveIO.sha256(archive), targetDirectory, name -> true);
+    }
+
+    /**
+     * Same as {@link #extract(String, String, String, File, File)}, but only for the entries of the {@code archive}
+     * accepted by the {@code entryFilter}.
+     *
+     * @param checksum already computed {@link ArchiveIO#sha256(File) checksum} of the {@code archive}
+     */
+    public void extract(String groupId, String assetId, String version, File archive, String checksum, File targetDirectory, Predicate<String> entryFilter) throws IOException {
+        final File contentDirectory = get(groupId, assetId, version, archive, checksum);
+        ArchiveIO.walk(contentDirectory, file -> true, null, (name, file) -> {
+            if (!entryFilter.test(name)) {
+                return;
+            }
+            final Path target = new File(targetDirectory, name).toPath();
+            Files.createDirectories(target.getParent());
+            link(file.toPath(), target);
+        });
+    }
+
+    /**
+     * @return the directory with the extracted content of the {@code archive}, extracting it if it's not cached yet or
+     * the cached one was modified
+     */
+    File get(String groupId, String assetId, String version, File archive, String checksum) throws IOException {
+        final File gavDirectory = new File(directory, groupId + File.separator + assetId + File.separator + version);
+        final File fragmentDirectory = new File(gavDirectory, checksum);
+        if (fragmentDirectory.isDirectory()) {
+            if (isIntact(fragmentDirectory)) {
+                return new File(fragmentDirectory, CONTENT);
+            }
+            evict(fragmentDirectory);
+        }
+        Files.createDirectories(gavDirectory.toPath());
+        deleteStaleTemporals(gavDirectory);
+        final Path temporal = Files.createTempDirectory(gavDirectory.toPath(), fragmentDirectory.getName() + TEMPORAL_SUFFIX);
+        try {
+            final File content = new File(temporal.toFile(), CONTENT);
+            ArchiveIO.unzip(archive, content);
+            writeIndex(content, new File(temporal.toFile(), INDEX));
+            publish(temporal, fragmentDirectory.toPath());
+        } finally {
+            if (Files.exists(temporal)) {
+                delete(temporal.toFile());
+            }
+        }
+        return new File(fragmentDirectory, CONTENT);
+    }
+
+    /**
+     * Makes every extracted file read only (when hard links are used), and stores the name, size and modification time
+     * of each of them in the {@code indexFile}.
+     */
+    private void writeIndex(File contentDirectory, File indexFile) throws IOException {
+        final boolean readOnly = useHardLinks(contentDirectory);
+        final List<String> lines = new ArrayList<>();
+        ArchiveIO.walk(contentDirectory, file -> true, null, (name, file) -> {
+            if (readOnly) {
+                file.setWritable(false, false);
+            }
+            // <size>|<modification time>|<name>, the name goes last as it might contain any character
+            lines.add(file.length() + "|" + file.lastModified() + "|" + name);
+        });
+        Files.write(indexFile.toPath(), lines, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return whether every file of the index of the cached fragment still has the size and modification time it was
+     * extracted with
+     */
+    private static boolean isIntact(File fragmentDirectory) {
+        final File contentDirectory = new File(fragmentDirectory, CONTENT);
+        try {
+            for (String line : Files.readAllLines(new File(fragmentDirectory, INDEX).toPath(), StandardCharsets.UTF_8)) {
+                final String[] parts = line.split("\\|", 3);
+                final File file = new File(contentDirectory, parts[2]);
+                if (!file.isFile() || file.length() != Long.parseLong(parts[0]) || file.lastModified() != Long.parseLong(parts[1])) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // no index (e.g.: left behind by a previous version of the cache) or a corrupted one
+            return false;
+        }
+    }
+
+    /**
+     * Moves the cached fragment out of the way (so that concurrent builds stop using it right away) and deletes it.
+     */
+    private static void evict(File fragmentDirectory) throws IOException {
+        final File evicted = new File(fragmentDirectory.getParentFile(), fragmentDirectory.getName() + TEMPORAL_SUFFIX + UUID.randomUUID());
+        try {
+            Files.move(fragmentDirectory.toPath(), evicted.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // already evicted by a concurrent build
+            if (fragmentDirectory.exists()) {
+                throw e;
+            }
+            return;
+        }
+        delete(evicted);
+    }
+
+    /**
+     * Deletes the temporal directories of extractions (or evictions) that never finished, as a killed build leaves
+     * them behind.
+     */
+    private static void deleteStaleTemporals(File gavDirectory) throws IOException {
+        final long staleBefore = System.currentTimeMillis() - STALE_TEMPORAL_MILLIS;
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(gavDirectory.toPath(), "*" + TEMPORAL_SUFFIX + "*")) {
+            for (Path child : children) {
+                final File temporal = child.toFile();
+                if (temporal.lastModified() < staleBefore) {
+                    delete(temporal);
+                }
+            }
+        }
+    }
+
+    /**
+     * Renames the extracted fragment into its final location. If a concurrent build published it first, its copy is
+     * kept and this one discarded.
+     */
+    private static void publish(Path temporal, Path target) throws IOException {
+        try {
+            Files.move(temporal, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            if (!Files.isDirectory(target)) {
+                Files.move(temporal, target);
+            }
+        } catch (FileAlreadyExistsException e) {
+            // published by a concurrent build
+        } catch (IOException e) {
+            // some file systems report a rename over a non empty directory as a generic failure
+            if (!Files.isDirectory(target)) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * @return whether the cached files are hard linked into the projects, which only happens on POSIX file systems
+     */
+    private boolean useHardLinks(File cachedDirectory) {
+        Boolean result = hardLinks;
+        if (result == null) {
+            try {
+                result = Files.getFileStore(cachedDirectory.toPath()).supportsFileAttributeView("posix");
+            } catch (IOException e) {
+                result = false;
+            }
+            hardLinks = result;
+        }
+        return result;
+    }
+
+    private void link(Path source, Path target) throws IOException {
+        Files.deleteIfExists(target);
+        if (useHardLinks(source.toFile())) {
+            try {
+                Files.createLink(target, source);
+                return;
+            } catch (UnsupportedOperationException | IOException e) {
+                // different file stores or no support for hard links, copies are used from now on
+                hardLinks = false;
+            }
+        }
+        ArchiveIO.copyFile(source.toFile(), target.toFile(), true);
+    }
+
+    private static void delete(File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
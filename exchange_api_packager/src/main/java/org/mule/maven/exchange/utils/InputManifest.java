@@ -0,0 +1,106 @@
+package org.mule.maven.exchange.utils;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Snapshot of the inputs of a goal (relative path, size, last modification time and, optionally, a content hash of
+ * every file), used to detect whether anything changed since the previous execution without re-reading the inputs.
+ * <p>
+ * It's persisted as a plain text file, one line per input, option or output.
+ */
+public class InputManifest {
+
+    private static final String HEADER = "# exchange api packager input manifest";
+
+    private final List<String> lines = new ArrayList<>();
+
+    private final boolean hashContent;
+
+    /**
+     * @param hashContent whether to also hash the content of every input file, instead of just trusting size and last
+     *                    modification time.
+     */
+    public InputManifest(boolean hashContent) {
+        this.hashContent = hashContent;
+    }
+
+    /**
+     * Adds an option that affects the outputs, so that changing it invalidates the manifest.
+     */
+    public InputManifest addOption(String name, String value) {
+        lines.add("option:" + name + "=" + value);
+        return this;
+    }
+
+    /**
+     * Adds every file accepted by the {@code fileFilter} under the {@code directory}, recursively.
+     *
+     * @param id         identifies the directory in the manifest
+     * @param directory  root directory of the inputs, it might not exist
+     * @param fileFilter filter of the files and directories to take into account
+     */
+    public InputManifest addDirectory(String id, File directory, FileFilter fileFilter) throws IOException {
+        lines.add("directory:" + id + "=" + directory.isDirectory());
+        addFiles(id, directory, fileFilter, null);
+        return this;
+    }
+
+    /**
+     * @param outputs outputs of the goal, which must still be there (and untouched) for the manifest to be up to date
+     * @return a copy of this manifest that also includes the current size of the {@code outputs}
+     */
+    public InputManifest withOutputs(File... outputs) {
+        final InputManifest result = new InputManifest(hashContent);
+        result.lines.addAll(lines);
+        for (File output : outputs) {
+            result.lines.add("output:" + output.getName() + "=" + (output.isFile() ? output.length() : -1));
+        }
+        return result;
+    }
+
+    private void addFiles(String id, File directory, FileFilter fileFilter, String basePath) throws IOException {
+        final File[] files = directory.listFiles(fileFilter);
+        if (files != null) {
+            Arrays.sort(files, Comparator.comparing(File::getName));
+            for (File file : files) {
+                final String name = basePath != null ? basePath + "/" + file.getName() : file.getName();
+                if (file.isDirectory()) {
+                    addFiles(id, file, fileFilter, name);
+                } else {
+                    lines.add("input:" + id + ":" + name + "|" + file.length() + "|" + file.lastModified() + (hashContent ? "|" + ArchiveIO.sha256(file) : ""));
+                }
+            }
+        }
+    }
+
+    /**
+     * @param manifestFile previously {@link #save(File) saved} manifest
+     * @return true if the saved manifest has exactly the same inputs, options and outputs
+     */
+    public boolean matches(File manifestFile) {
+        if (!manifestFile.isFile()) {
+            return false;
+        }
+        try {
+            final List<String> saved = Files.readAllLines(manifestFile.toPath(), StandardCharsets.UTF_8);
+            return !saved.isEmpty() && HEADER.equals(saved.get(0)) && lines.equals(saved.subList(1, saved.size()));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public void save(File manifestFile) throws IOException {
+        final List<String> content = new ArrayList<>(lines.size() + 1);
+        content.add(HEADER);
+        content.addAll(lines);
+        Files.write(manifestFile.toPath(), content, StandardCharsets.UTF_8);
+    }
+}
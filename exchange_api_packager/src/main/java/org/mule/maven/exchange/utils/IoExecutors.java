@@ -0,0 +1,68 @@
+package org.mule.maven.exchange.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for blocking I/O tasks: one virtual thread per task when running on JDK 21 or newer, or a fixed pool of
+ * daemon threads otherwise (the plugin still targets Java 8, so virtual threads are reached through reflection).
+ */
+public final class IoExecutors {
+
+    private IoExecutors() {
+    }
+
+    /**
+     * @param name    prefix of the name of the threads
+     * @param threads size of the pool when virtual threads are not available, defaults to 4 times the number of
+     *                processors if it's not positive
+     */
+    public static ExecutorService newExecutor(String name, int threads) {
+        final ExecutorService virtualThreads = newVirtualThreadPerTaskExecutor();
+        if (virtualThreads != null) {
+            return virtualThreads;
+        }
+        final AtomicInteger count = new AtomicInteger();
+        final ThreadFactory threadFactory = runnable -> {
+            final Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors() * 4, threadFactory);
+    }
+
+    /**
+     * @return whether {@link #newExecutor(String, int)} creates virtual threads
+     */
+    public static boolean isVirtual() {
+        return getVirtualThreadFactoryMethod() != null;
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        final Method method = getVirtualThreadFactoryMethod();
+        if (method == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static Method getVirtualThreadFactoryMethod() {
+        // JDK 19 and 20 have the method too, but as a preview feature
+        final String version = System.getProperty("java.specification.version", "1.8");
+        if (version.startsWith("1.") || Integer.parseInt(version.split("\\.")[0]) < 21) {
+            return null;
+        }
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
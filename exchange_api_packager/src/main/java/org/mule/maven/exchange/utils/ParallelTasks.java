@@ -0,0 +1,52 @@
+package org.mule.maven.exchange.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a handful of independent tasks concurrently, such as the processing of every spec of a project.
+ */
+public final class ParallelTasks {
+
+    private ParallelTasks() {
+    }
+
+    /**
+     * Runs the {@code tasks} on a pool of up to {@code threads} threads, or on the calling thread when there's only
+     * one of them, waiting for all of them to finish.
+     *
+     * @param threads maximum number of tasks run at once, defaults to the number of tasks if it's not positive
+     * @return the results of the tasks, in the same order
+     * @throws ExecutionException with the failure of the first task that failed, once every task is done
+     */
+    public static <T> List<T> invokeAll(List<Callable<T>> tasks, int threads) throws InterruptedException, ExecutionException {
+        if (tasks.size() == 1) {
+            try {
+                return Collections.singletonList(tasks.get(0).call());
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new ExecutionException(e);
+            }
+        }
+        final List<T> results = new ArrayList<>(tasks.size());
+        if (tasks.isEmpty()) {
+            return results;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(threads > 0 ? Math.min(threads, tasks.size()) : tasks.size());
+        try {
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,685 @@
+package org.mule.maven.exchange.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Zip writer that compresses the entries concurrently on a bounded pool of threads, and then writes them to the
+ * archives in the same order they were added, so that the output is deterministic regardless of the number of threads.
+ * <p>
+ * Each entry up to {@link #STREAMING_THRESHOLD} is read and deflated in memory by a worker (scatter), while the calling
+ * thread appends the already compressed entries to the files and finally writes the central directories (gather).
+ * Larger files are not buffered: the calling thread streams them into the archives when their turn comes. At most 4
+ * entries per thread are in flight, each one held twice (content and deflated copy), so the memory used is bounded by
+ * the number of threads and the threshold, not by the size of the archives.
+ * <p>
+ * Several archives can be written at once: an entry shared by all of them is read and compressed just once.
+ * <p>
+ * Archives are written to temporal files next to them, and only moved into place by {@link #finish()}: closing the
+ * writer without finishing it (e.g.: a source couldn't be read) discards them, so a truncated archive is never left
+ * behind.
+ * <p>
+ * Entries are written without ZIP64 records. An archive that would exceed those limits (65535 entries or 4GB) is
+ * rewritten with a {@link ZipOutputStream} as soon as the next entry doesn't fit, and the rest of its entries go through
+ * it, so it gets the ZIP64 records it needs at the cost of compressing on the calling thread.
+ */
+public class ParallelZipWriter implements Closeable {
+
+    /**
+     * files larger than this are streamed by the calling thread instead of being read and deflated in memory
+     */
+    static final long STREAMING_THRESHOLD = 1024 * 1024;
+
+    private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+    private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+    private static final int CENTRAL_DIRECTORY_SIGNATURE = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int LOCAL_FILE_HEADER_SIZE = 30;
+    private static final int DATA_DESCRIPTOR_SIZE = 16;
+    private static final int CENTRAL_DIRECTORY_RECORD_SIZE = 46;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int VERSION = 20;
+    private static final int DATA_DESCRIPTOR_FLAG = 1 << 3;
+    private static final int UTF8_FLAG = 1 << 11;
+    private static final long MAX_ZIP32 = 0xFFFFFFFFL;
+    private static final int MAX_ENTRIES = 0xFFFF;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final List<Archive> archives = new ArrayList<>();
+
+    private final ExecutorService executor;
+
+    private final int maxInFlight;
+
+    private final long streamingThreshold;
+
+    private final Deque<PendingEntry> inFlight = new ArrayDeque<>();
+
+    private boolean failed;
+
+    private boolean finished;
+
+    /**
+     * @param zipFile archive to create
+     * @param threads number of threads used to compress the entries
+     */
+    public ParallelZipWriter(File zipFile, int threads) throws IOException {
+        this(threads, zipFile);
+    }
+
+    /**
+     * @param threads  number of threads used to compress the entries, when 1 they are compressed by the calling thread
+     * @param zipFiles archives to create, referenced by their index in {@link #addEntry(String, File, int...)}
+     */
+    public ParallelZipWriter(int threads, File... zipFiles) throws IOException {
+        this(threads, STREAMING_THRESHOLD, zipFiles);
+    }
+
+    ParallelZipWriter(int threads, long streamingThreshold, File... zipFiles) throws IOException {
+        try {
+            for (File zipFile : zipFiles) {
+                archives.add(new Archive(zipFile));
+            }
+        } catch (IOException e) {
+            for (Archive archive : archives) {
+                archive.discard();
+            }
+            throw e;
+        }
+        this.executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        this.maxInFlight = threads * 4;
+        this.streamingThreshold = streamingThreshold;
+    }
+
+    /**
+     * Schedules the compression of the {@code file}, which will be stored in every archive under {@code name}.
+     */
+    public void addEntry(String name, File file) throws IOException {
+        addEntry(name, file, allArchives());
+    }
+
+    /**
+     * Schedules the compression of the {@code file}, which will be stored under {@code name} in the archives with the
+     * given indexes (in the order they were passed to the constructor).
+     */
+    public void addEntry(String name, File file, int... archiveIndexes) throws IOException {
+        if (file.length() > streamingThreshold) {
+            checkWritable();
+            enqueue(new PendingEntry(name, file, archiveIndexes));
+        } else {
+            schedule(() -> compress(name, ArchiveIO.readFully(file), file.lastModified()), archiveIndexes);
+        }
+    }
+
+    /**
+     * Schedules the compression of an in memory {@code content}, which will be stored under {@code name} in the
+     * archives with the given indexes (all of them if none is specified).
+     *
+     * @param lastModified modification time of the entry, in milliseconds since the epoch
+     */
+    public void addEntry(String name, byte[] content, long lastModified, int... archiveIndexes) throws IOException {
+        schedule(() -> compress(name, content, lastModified), archiveIndexes.length == 0 ? allArchives() : archiveIndexes);
+    }
+
+    private void schedule(Callable<CompressedEntry> compression, int[] archiveIndexes) throws IOException {
+        checkWritable();
+        final Future<CompressedEntry> entry;
+        if (executor != null) {
+            entry = executor.submit(compression);
+        } else {
+            final CompletableFuture<CompressedEntry> compressed = new CompletableFuture<>();
+            try {
+                compressed.complete(compression.call());
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            } catch (Exception e) {
+                failed = true;
+                throw new IOException(e);
+            }
+            entry = compressed;
+        }
+        enqueue(new PendingEntry(entry, archiveIndexes));
+    }
+
+    private void enqueue(PendingEntry entry) throws IOException {
+        inFlight.add(entry);
+        while (inFlight.size() > maxInFlight) {
+            writeNext();
+        }
+    }
+
+    private void checkWritable() throws IOException {
+        if (failed || finished) {
+            throw new IOException(failed ? "A previous entry failed, the archives are discarded" : "The archives are already finished");
+        }
+    }
+
+    private int[] allArchives() {
+        final int[] all = new int[archives.size()];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = i;
+        }
+        return all;
+    }
+
+    /**
+     * Waits for every pending entry, writes it along with the central directories, and moves the archives into place.
+     *
+     * @throws IOException if any entry failed, in which case the archives are discarded on {@link #close()}
+     */
+    public void finish() throws IOException {
+        checkWritable();
+        try {
+            while (!inFlight.isEmpty()) {
+                writeNext();
+            }
+            for (Archive archive : archives) {
+                archive.finish();
+            }
+            for (Archive archive : archives) {
+                archive.moveIntoPlace();
+            }
+            finished = true;
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the threads and discards the archives, unless they were {@link #finish() finished}.
+     */
+    @Override
+    public void close() throws IOException {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        if (!finished) {
+            for (Archive archive : archives) {
+                archive.discard();
+            }
+        }
+    }
+
+    private void writeNext() throws IOException {
+        try {
+            final PendingEntry pending = inFlight.poll();
+            if (pending.file != null) {
+                writeStreamed(pending.name, pending.file, pending.archiveIndexes);
+                return;
+            }
+            final CompressedEntry entry = get(pending.entry);
+            for (int index : pending.archiveIndexes) {
+                archives.get(index).writeEntry(entry);
+            }
+        } catch (IOException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the {@code file} once, deflating it into the archives that write their own entries and handing its content
+     * to the ones that fell back to a {@link ZipOutputStream}.
+     */
+    private void writeStreamed(String name, File file, int[] archiveIndexes) throws IOException {
+        final byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        final long lastModified = file.lastModified();
+        final int dosTime = toDosTime(lastModified);
+        final long size = file.length();
+        final List<Archive> deflating = new ArrayList<>();
+        final List<ZipOutputStream> fallbacks = new ArrayList<>();
+        for (int index : archiveIndexes) {
+            final Archive archive = archives.get(index);
+            if (archive.fits(nameBytes.length, maxDeflatedSize(size) + DATA_DESCRIPTOR_SIZE, size)) {
+                archive.startStreamedEntry(nameBytes, dosTime);
+                deflating.add(archive);
+            } else {
+                fallbacks.add(archive.startFallbackEntry(name, lastModified));
+            }
+        }
+        final CRC32 crc = new CRC32();
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        final byte[] compressed = new byte[BUFFER_SIZE];
+        long read = 0;
+        long compressedSize = 0;
+        try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+            int length;
+            while ((length = inputStream.read(buffer)) != -1) {
+                crc.update(buffer, 0, length);
+                read += length;
+                for (ZipOutputStream fallback : fallbacks) {
+                    fallback.write(buffer, 0, length);
+                }
+                if (!deflating.isEmpty()) {
+                    deflater.setInput(buffer, 0, length);
+                    while (!deflater.needsInput()) {
+                        compressedSize += write(deflater, compressed, deflating);
+                    }
+                }
+            }
+            deflater.finish();
+            while (!deflating.isEmpty() && !deflater.finished()) {
+                compressedSize += write(deflater, compressed, deflating);
+            }
+        } finally {
+            deflater.end();
+        }
+        if (read != size) {
+            throw new ZipException(String.format("File [%s] changed while it was being zipped", file.getAbsolutePath()));
+        }
+        for (Archive archive : deflating) {
+            archive.endStreamedEntry(crc.getValue(), read, compressedSize);
+        }
+        for (ZipOutputStream fallback : fallbacks) {
+            fallback.closeEntry();
+        }
+    }
+
+    private static int write(Deflater deflater, byte[] buffer, List<Archive> archives) throws IOException {
+        final int length = deflater.deflate(buffer);
+        for (Archive archive : archives) {
+            archive.output.write(buffer, 0, length);
+        }
+        return length;
+    }
+
+    /**
+     * @return the size that deflating {@code size} bytes can take at most (stored blocks, when it doesn't compress)
+     */
+    private static long maxDeflatedSize(long size) {
+        return size + (size >> 10) + 64;
+    }
+
+    private CompressedEntry get(Future<CompressedEntry> entry) throws IOException {
+        try {
+            return entry.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing zip entries", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static CompressedEntry compress(String name, byte[] content, long lastModified) {
+        final CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length);
+        final byte[] compressed = ArchiveIO.deflate(content);
+        return new CompressedEntry(name, lastModified, crc.getValue(), content.length, compressed);
+    }
+
+    private static int toDosTime(long time) {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        final int year = calendar.get(Calendar.YEAR);
+        if (year < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (year - 1980) << 25 | (calendar.get(Calendar.MONTH) + 1) << 21 | calendar.get(Calendar.DAY_OF_MONTH) << 16 |
+                calendar.get(Calendar.HOUR_OF_DAY) << 11 | calendar.get(Calendar.MINUTE) << 5 | calendar.get(Calendar.SECOND) >> 1;
+    }
+
+    private static class CompressedEntry {
+
+        final String name;
+        final byte[] nameBytes;
+        final long lastModified;
+        final int dosTime;
+        final long crc;
+        final long size;
+        final byte[] data;
+
+        CompressedEntry(String name, long lastModified, long crc, long size, byte[] data) {
+            this.name = name;
+            this.nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            this.lastModified = lastModified;
+            this.dosTime = toDosTime(lastModified);
+            this.crc = crc;
+            this.size = size;
+            this.data = data;
+        }
+
+        /**
+         * @return the content of the entry, inflated back from its data
+         */
+        byte[] inflate() throws IOException {
+            final Inflater inflater = new Inflater(true);
+            try {
+                inflater.setInput(data);
+                final byte[] result = new byte[(int) size];
+                int length = 0;
+                while (length < result.length && !inflater.finished()) {
+                    final int inflated = inflater.inflate(result, length, result.length - length);
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    length += inflated;
+                }
+                if (length != result.length) {
+                    throw new ZipException(String.format("Entry [%s] couldn't be inflated", name));
+                }
+                return result;
+            } catch (DataFormatException e) {
+                throw new ZipException(String.format("Entry [%s] couldn't be inflated: %s", name, e.getMessage()));
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+
+    private static class PendingEntry {
+
+        final Future<CompressedEntry> entry;
+        final String name;
+        final File file;
+        final int[] archiveIndexes;
+
+        PendingEntry(Future<CompressedEntry> entry, int[] archiveIndexes) {
+            this.entry = entry;
+            this.name = null;
+            this.file = null;
+            this.archiveIndexes = archiveIndexes;
+        }
+
+        /**
+         * entry streamed from the {@code file} by the calling thread when its turn comes
+         */
+        PendingEntry(String name, File file, int[] archiveIndexes) {
+            this.entry = null;
+            this.name = name;
+            this.file = file;
+            this.archiveIndexes = archiveIndexes;
+        }
+    }
+
+    private static class Archive {
+
+        private final File zipFile;
+
+        private Path temporal;
+
+        private CountingOutputStream output;
+
+        private final List<CentralDirectoryRecord> centralDirectory = new ArrayList<>();
+
+        private long centralDirectorySize;
+
+        /**
+         * set once the archive needs ZIP64, every entry from then on goes through it
+         */
+        private ZipOutputStream fallback;
+
+        private CentralDirectoryRecord streamed;
+
+        Archive(File zipFile) throws IOException {
+            this.zipFile = zipFile.getAbsoluteFile();
+            this.temporal = createTemporal();
+            this.output = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(temporal), BUFFER_SIZE));
+        }
+
+        private Path createTemporal() throws IOException {
+            return Files.createTempFile(zipFile.getParentFile().toPath(), zipFile.getName(), ".tmp");
+        }
+
+        private void moveIntoPlace() throws IOException {
+            try {
+                Files.move(temporal, zipFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporal, zipFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        private void discard() throws IOException {
+            try {
+                if (fallback != null) {
+                    fallback.close();
+                } else {
+                    output.close();
+                }
+            } finally {
+                Files.deleteIfExists(temporal);
+            }
+        }
+
+        /**
+         * @return whether an entry with a name of {@code nameLength} bytes and up to {@code dataSize} bytes of data can
+         * still be written without ZIP64, along with the central directory of every entry so far
+         */
+        private boolean fits(int nameLength, long dataSize, long size) {
+            return fallback == null && centralDirectory.size() < MAX_ENTRIES && size < MAX_ZIP32 && dataSize < MAX_ZIP32
+                    && output.count + LOCAL_FILE_HEADER_SIZE + nameLength + dataSize + centralDirectorySize
+                    + CENTRAL_DIRECTORY_RECORD_SIZE + nameLength + END_OF_CENTRAL_DIRECTORY_SIZE <= MAX_ZIP32;
+        }
+
+        private void writeEntry(CompressedEntry entry) throws IOException {
+            if (!fits(entry.nameBytes.length, entry.data.length, entry.size)) {
+                startFallbackEntry(entry.name, entry.lastModified).write(entry.inflate());
+                fallback.closeEntry();
+                return;
+            }
+            final CentralDirectoryRecord record = new CentralDirectoryRecord(entry.nameBytes, UTF8_FLAG, entry.dosTime, output.count);
+            record.crc = entry.crc;
+            record.size = entry.size;
+            record.compressedSize = entry.data.length;
+            writeLocalFileHeader(record);
+            output.write(entry.data);
+            add(record);
+        }
+
+        private void startStreamedEntry(byte[] name, int dosTime) throws IOException {
+            streamed = new CentralDirectoryRecord(name, UTF8_FLAG | DATA_DESCRIPTOR_FLAG, dosTime, output.count);
+            // sizes and CRC go in the data descriptor that follows the data
+            writeLocalFileHeader(streamed);
+        }
+
+        private void endStreamedEntry(long crc, long size, long compressedSize) throws IOException {
+            streamed.crc = crc;
+            streamed.size = size;
+            streamed.compressedSize = compressedSize;
+            final LittleEndianOutput out = new LittleEndianOutput(output);
+            out.writeInt(DATA_DESCRIPTOR_SIGNATURE);
+            out.writeInt((int) crc);
+            out.writeInt((int) compressedSize);
+            out.writeInt((int) size);
+            add(streamed);
+            streamed = null;
+        }
+
+        private void add(CentralDirectoryRecord record) {
+            centralDirectory.add(record);
+            centralDirectorySize += CENTRAL_DIRECTORY_RECORD_SIZE + record.name.length;
+        }
+
+        private void writeLocalFileHeader(CentralDirectoryRecord record) throws IOException {
+            final LittleEndianOutput out = new LittleEndianOutput(output);
+            out.writeInt(LOCAL_FILE_HEADER_SIGNATURE);
+            out.writeShort(VERSION);
+            out.writeShort(record.flags);
+            out.writeShort(Deflater.DEFLATED);
+            out.writeInt(record.dosTime);
+            out.writeInt((int) record.crc);
+            out.writeInt((int) record.compressedSize);
+            out.writeInt((int) record.size);
+            out.writeShort(record.name.length);
+            out.writeShort(0);
+            output.write(record.name);
+        }
+
+        /**
+         * Starts an entry on the {@link #fallback}, rewriting the entries written so far with it the first time.
+         */
+        private ZipOutputStream startFallbackEntry(String name, long lastModified) throws IOException {
+            if (fallback == null) {
+                output.close();
+                final Path written = temporal;
+                temporal = createTemporal();
+                fallback = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(temporal), BUFFER_SIZE), StandardCharsets.UTF_8);
+                try (ZipInputStream entries = new ZipInputStream(new BufferedInputStream(Files.newInputStream(written), BUFFER_SIZE), StandardCharsets.UTF_8)) {
+                    final byte[] buffer = new byte[BUFFER_SIZE];
+                    ZipEntry entry;
+                    while ((entry = entries.getNextEntry()) != null) {
+                        final ZipEntry copy = new ZipEntry(entry.getName());
+                        copy.setTime(entry.getTime());
+                        fallback.putNextEntry(copy);
+                        int length;
+                        while ((length = entries.read(buffer)) != -1) {
+                            fallback.write(buffer, 0, length);
+                        }
+                        fallback.closeEntry();
+                    }
+                } finally {
+                    Files.deleteIfExists(written);
+                }
+                centralDirectory.clear();
+            }
+            final ZipEntry entry = new ZipEntry(name);
+            entry.setTime(lastModified);
+            fallback.putNextEntry(entry);
+            return fallback;
+        }
+
+        private void finish() throws IOException {
+            if (fallback != null) {
+                fallback.close();
+                return;
+            }
+            writeCentralDirectory();
+            output.close();
+        }
+
+        private void writeCentralDirectory() throws IOException {
+            final long offset = output.count;
+            final LittleEndianOutput out = new LittleEndianOutput(output);
+            for (CentralDirectoryRecord record : centralDirectory) {
+                out.writeInt(CENTRAL_DIRECTORY_SIGNATURE);
+                out.writeShort(VERSION);
+                out.writeShort(VERSION);
+                out.writeShort(record.flags);
+                out.writeShort(Deflater.DEFLATED);
+                out.writeInt(record.dosTime);
+                out.writeInt((int) record.crc);
+                out.writeInt((int) record.compressedSize);
+                out.writeInt((int) record.size);
+                out.writeShort(record.name.length);
+                out.writeShort(0); // extra field length
+                out.writeShort(0); // comment length
+                out.writeShort(0); // disk number
+                out.writeShort(0); // internal attributes
+                out.writeInt(0); // external attributes
+                out.writeInt((int) record.offset);
+                output.write(record.name);
+            }
+            final long size = output.count - offset;
+            out.writeInt(END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+            out.writeShort(0);
+            out.writeShort(0);
+            out.writeShort(centralDirectory.size());
+            out.writeShort(centralDirectory.size());
+            out.writeInt((int) size);
+            out.writeInt((int) offset);
+            out.writeShort(0);
+        }
+    }
+
+    /**
+     * what the central directory needs of an entry, its data is not kept
+     */
+    private static class CentralDirectoryRecord {
+
+        final byte[] name;
+        final int flags;
+        final int dosTime;
+        final long offset;
+        long crc;
+        long size;
+        long compressedSize;
+
+        CentralDirectoryRecord(byte[] name, int flags, int dosTime, long offset) {
+            this.name = name;
+            this.flags = flags;
+            this.dosTime = dosTime;
+            this.offset = offset;
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+
+        private final OutputStream delegate;
+        private long count;
+
+        CountingOutputStream(OutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+
+    private static class LittleEndianOutput {
+
+        private final OutputStream output;
+
+        LittleEndianOutput(OutputStream output) {
+            this.output = output;
+        }
+
+        void writeShort(int value) throws IOException {
+            output.write(value & 0xFF);
+            output.write((value >>> 8) & 0xFF);
+        }
+
+        void writeInt(int value) throws IOException {
+            writeShort(value & 0xFFFF);
+            writeShort((value >>> 16) & 0xFFFF);
+        }
+    }
+}
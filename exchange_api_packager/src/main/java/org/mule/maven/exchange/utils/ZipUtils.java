@@ -4,7 +4,6 @@ package org.mule.maven.exchange.utils;
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.zip.ZipEntry;
@@ -13,66 +12,50 @@ import java.util.zip.ZipOutputStream;
 
 public class ZipUtils {
 
-    private List<String> fileList;
+    private List<File> nodes;
     private File targetDir;
 
     public ZipUtils(File targetDir) {
-        this.fileList = new ArrayList<>();
+        this.nodes = new ArrayList<>();
         this.targetDir = targetDir;
     }
 
 
     public void zipIt(String zipFile) {
-        byte[] buffer = new byte[1024];
         String source = targetDir.getName();
-        FileOutputStream fos = null;
-        ZipOutputStream zos = null;
-        try {
-            fos = new FileOutputStream(zipFile);
-            zos = new ZipOutputStream(fos);
-
-            System.out.println("Output to Zip : " + zipFile);
-            FileInputStream in = null;
-
-            for (String file : this.fileList) {
-                System.out.println("File Added : " + file);
-                ZipEntry ze = new ZipEntry(source + File.separator + file);
-                zos.putNextEntry(ze);
-                try {
-                    in = new FileInputStream(targetDir.getAbsolutePath() + File.separator + file);
-                    int len;
-                    while ((len = in.read(buffer)) > 0) {
-                        zos.write(buffer, 0, len);
-                    }
-                } finally {
-                    in.close();
+        try (ZipOutputStream zos = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(zipFile), ArchiveIO.BUFFER_SIZE))) {
+            for (File node : this.nodes) {
+                if (node.isFile()) {
+                    addEntry(zos, source, generateZipEntry(node.toString()), node);
+                } else {
+                    ArchiveIO.walk(node, file -> true, generateZipEntry(node.toString()).replace(File.separatorChar, '/'),
+                            (name, file) -> addEntry(zos, source, name.replace('/', File.separatorChar), file));
                 }
             }
-
-            zos.closeEntry();
-            System.out.println("Folder successfully compressed");
-
         } catch (IOException ex) {
             ex.printStackTrace();
-        } finally {
-            try {
-                zos.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
         }
     }
 
+    private static void addEntry(ZipOutputStream zos, String source, String file, File content) throws IOException {
+        zos.putNextEntry(new ZipEntry(source + File.separator + file));
+        Files.copy(content.toPath(), zos);
+        zos.closeEntry();
+    }
+
+    /**
+     * Registers the {@code node} (a file or a directory under the target directory) to be added by
+     * {@link #zipIt(String)}, directories are walked lazily while zipping.
+     */
     public void generateFileList(File node) {
-        // add file only
-        if (node.isFile()) {
-            fileList.add(generateZipEntry(node.toString()));
-        }
-        if (node.isDirectory()) {
-            String[] subNote = node.list();
-            if (subNote != null) {
-                for (String filename : subNote) {
-                    generateFileList(new File(node, filename));
+        if (node.isFile() || (node.isDirectory() && !node.getAbsoluteFile().equals(targetDir.getAbsoluteFile()))) {
+            nodes.add(node);
+        } else if (node.isDirectory()) {
+            // the target directory itself has no entry name, so its children are registered instead
+            final String[] children = node.list();
+            if (children != null) {
+                for (String child : children) {
+                    generateFileList(new File(node, child));
                 }
             }
         }
@@ -83,39 +66,11 @@ public class ZipUtils {
     }
 
     public static void unzip(final String zipFilePath, final String unzipLocation) throws IOException {
-
-        if (!(Files.exists(Paths.get(unzipLocation)))) {
-            Files.createDirectories(Paths.get(unzipLocation));
-        }
-        try (ZipInputStream zipInputStream = new ZipInputStream(new FileInputStream(zipFilePath))) {
-            ZipEntry entry = zipInputStream.getNextEntry();
-            while (entry != null) {
-                Path filePath = Paths.get(unzipLocation, entry.getName());
-                if (!entry.isDirectory()) {
-                    unzipFiles(zipInputStream, filePath);
-                } else {
-                    Files.createDirectories(filePath);
-                }
-
-                zipInputStream.closeEntry();
-                entry = zipInputStream.getNextEntry();
-            }
-        }
+        ArchiveIO.unzip(new File(zipFilePath), new File(unzipLocation));
     }
 
     public static void unzipFiles(final ZipInputStream zipInputStream, final Path unzipFilePath) throws IOException {
-
-        if (!(Files.exists(unzipFilePath.getParent()))) {
-            Files.createDirectories(unzipFilePath.getParent());
-        }
-
-        try (BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(unzipFilePath.toAbsolutePath().toString()))) {
-            byte[] bytesIn = new byte[1024];
-            int read = 0;
-            while ((read = zipInputStream.read(bytesIn)) != -1) {
-                bos.write(bytesIn, 0, read);
-            }
-        }
-
+        Files.createDirectories(unzipFilePath.getParent());
+        ArchiveIO.write(zipInputStream, unzipFilePath);
     }
-}
\ No newline at end of file
+}
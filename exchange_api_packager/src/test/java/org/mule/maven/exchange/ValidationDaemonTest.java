@@ -0,0 +1,191 @@
+package org.mule.maven.exchange;
+
+import amf.apicontract.client.platform.AMFConfiguration;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ValidationDaemonTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void answerRequests() throws Exception {
+        final File directory = temporaryFolder.newFolder("daemon");
+        final Thread daemon = start(new ValidationDaemon(directory, 500, 1000));
+        final Properties registry = awaitRegistry(directory);
+        try (Socket socket = connect(registry)) {
+            final DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+            ValidationDaemon.writeString(output, registry.getProperty("token"));
+            ValidationDaemon.writeString(output, temporaryFolder.getRoot().getAbsolutePath());
+            ValidationDaemon.writeString(output, "api.raml");
+            ValidationDaemon.writeString(output, "unknown-mode");
+            output.flush();
+
+            final DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            assertEquals(ValidationDaemon.ERROR, input.readInt());
+            final String report = ValidationDaemon.readString(input, Integer.MAX_VALUE);
+            assertTrue(report, report.contains("unknown-mode"));
+        }
+        awaitExit(daemon, directory);
+    }
+
+    @Test
+    public void exitWhenAmfFailsToInitialize() throws Exception {
+        final File directory = temporaryFolder.newFolder("daemon");
+        final AmfEngine brokenEngine = new AmfEngine() {
+            @Override
+            public void warmUp() {
+            }
+
+            @Override
+            public AMFConfiguration getConfiguration() throws ExecutionException {
+                throw new ExecutionException(new NoClassDefFoundError("amf/core/client/scala/AMFGraphConfiguration"));
+            }
+        };
+        final Thread daemon = start(new ValidationDaemon(directory, TimeUnit.MINUTES.toMillis(10), 1000, brokenEngine));
+        final Properties registry = awaitRegistry(directory);
+        try (Socket socket = connect(registry)) {
+            final DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+            ValidationDaemon.writeString(output, registry.getProperty("token"));
+            ValidationDaemon.writeString(output, temporaryFolder.getRoot().getAbsolutePath());
+            ValidationDaemon.writeString(output, "api.raml");
+            ValidationDaemon.writeString(output, ValidationMode.FULL.getId());
+            output.flush();
+
+            final DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            assertEquals(ValidationDaemon.ERROR, input.readInt());
+            final String report = ValidationDaemon.readString(input, Integer.MAX_VALUE);
+            assertTrue(report, report.contains("AMFGraphConfiguration"));
+        }
+        // long before the idle timeout
+        awaitExit(daemon, directory);
+    }
+
+    @Test
+    public void dropRequestsWithAnotherToken() throws Exception {
+        final File directory = temporaryFolder.newFolder("daemon");
+        final Thread daemon = start(new ValidationDaemon(directory, 500, 1000));
+        try (Socket socket = connect(awaitRegistry(directory))) {
+            final DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+            ValidationDaemon.writeString(output, "another token");
+            output.flush();
+            assertEquals(-1, socket.getInputStream().read());
+        }
+        awaitExit(daemon, directory);
+    }
+
+    @Test
+    public void dropOversizedRequests() throws Exception {
+        final File directory = temporaryFolder.newFolder("daemon");
+        final Thread daemon = start(new ValidationDaemon(directory, 500, 1000));
+        try (Socket socket = connect(awaitRegistry(directory))) {
+            // would take 2 GB of heap if the daemon trusted the length
+            new DataOutputStream(socket.getOutputStream()).writeInt(Integer.MAX_VALUE);
+            assertEquals(-1, socket.getInputStream().read());
+        }
+        awaitExit(daemon, directory);
+    }
+
+    @Test
+    public void exitWhenIdleDespiteSilentConnections() throws Exception {
+        final File directory = temporaryFolder.newFolder("daemon");
+        final Thread daemon = start(new ValidationDaemon(directory, 200, 300));
+        try (Socket socket = connect(awaitRegistry(directory))) {
+            awaitExit(daemon, directory);
+        }
+    }
+
+    @Test
+    public void rejectInvalidStringLengths() throws IOException {
+        assertEquals("api.raml", ValidationDaemon.readString(new DataInputStream(new ByteArrayInputStream(new byte[]{0, 0, 0, 8, 'a', 'p', 'i', '.', 'r', 'a', 'm', 'l'})), 8));
+        for (byte[] request : new byte[][]{{0, 0, 0, 9}, {-1, -1, -1, -1}}) {
+            try {
+                ValidationDaemon.readString(new DataInputStream(new ByteArrayInputStream(request)), 8);
+                fail("The length is out of bounds");
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void failWhenTheDaemonDoesNotAnswer() throws Exception {
+        final ValidationDaemonClient client = new ValidationDaemonClient(temporaryFolder.newFolder("daemons"), Collections.emptyList(), 60, 1, new SystemStreamLog());
+        try (ServerSocket silentDaemon = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            final Properties registry = new Properties();
+            registry.setProperty("port", String.valueOf(silentDaemon.getLocalPort()));
+            registry.setProperty("token", "token");
+            Files.createDirectories(client.getDirectory().toPath());
+            try (OutputStream outputStream = Files.newOutputStream(new File(client.getDirectory(), ValidationDaemon.REGISTRY).toPath())) {
+                registry.store(outputStream, null);
+            }
+            final long start = System.nanoTime();
+            try {
+                client.validate(temporaryFolder.getRoot(), "api.raml", ValidationMode.FULL);
+                fail("The daemon never answers");
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("didn't answer"));
+            }
+            assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 10);
+        }
+    }
+
+    private static Thread start(ValidationDaemon daemon) {
+        final Thread result = new Thread(() -> {
+            try {
+                daemon.run();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        result.setDaemon(true);
+        result.start();
+        return result;
+    }
+
+    private static Properties awaitRegistry(File directory) throws Exception {
+        final File registryFile = new File(directory, ValidationDaemon.REGISTRY);
+        for (int i = 0; i < 500; i++) {
+            final Properties registry = ValidationDaemon.readRegistry(registryFile);
+            if (registry != null) {
+                return registry;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("The daemon didn't register");
+    }
+
+    private static void awaitExit(Thread daemon, File directory) throws InterruptedException {
+        daemon.join(TimeUnit.SECONDS.toMillis(30));
+        assertFalse("The daemon must exit once idle", daemon.isAlive());
+        assertFalse(new File(directory, ValidationDaemon.REGISTRY).exists());
+    }
+
+    private static Socket connect(Properties registry) throws IOException {
+        return new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(registry.getProperty("port")));
+    }
+}
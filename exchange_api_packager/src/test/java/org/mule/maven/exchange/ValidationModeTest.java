@@ -0,0 +1,61 @@
+package org.mule.maven.exchange;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ValidationModeTest {
+
+    private static final String EXAMPLE_VALIDATION = "http://a.ml/vocabularies/amf/validation#example-validation-error";
+
+    private static final String SHAPE_VALIDATION = "http://a.ml/vocabularies/amf/parser#unresolved-reference";
+
+    @Test
+    public void resolveModesByTheirId() {
+        for (ValidationMode mode : ValidationMode.values()) {
+            assertSame(mode, ValidationMode.of(mode.getId()));
+        }
+        assertSame(ValidationMode.EXAMPLES_AS_WARNINGS, ValidationMode.of("examples-as-warnings"));
+        try {
+            ValidationMode.of("FULL");
+            fail("Ids are case sensitive");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Unknown validation mode [FULL] (accepted modes are: [parse-only,examples-as-warnings,full])", e.getMessage());
+        }
+    }
+
+    @Test
+    public void onlyParseInParseOnlyMode() {
+        assertFalse(ValidationMode.PARSE_ONLY.validates());
+        assertTrue(ValidationMode.EXAMPLES_AS_WARNINGS.validates());
+        assertTrue(ValidationMode.FULL.validates());
+    }
+
+    @Test
+    public void failOnViolationsOnly() {
+        for (ValidationMode mode : ValidationMode.values()) {
+            assertTrue(mode.fails("Violation", SHAPE_VALIDATION));
+            assertFalse(mode.fails("Warning", SHAPE_VALIDATION));
+            assertFalse(mode.fails("Info", EXAMPLE_VALIDATION));
+        }
+    }
+
+    @Test
+    public void reportExampleViolationsAsWarnings() {
+        assertFalse(ValidationMode.EXAMPLES_AS_WARNINGS.fails("Violation", EXAMPLE_VALIDATION));
+        assertTrue(ValidationMode.FULL.fails("Violation", EXAMPLE_VALIDATION));
+        assertTrue(ValidationMode.EXAMPLES_AS_WARNINGS.fails("Violation", null));
+
+        assertTrue(ValidationMode.isExampleValidation(EXAMPLE_VALIDATION));
+        assertTrue(ValidationMode.isExampleValidation("http://a.ml/vocabularies/amf/parser#example-validation-error"));
+        assertFalse(ValidationMode.isExampleValidation(SHAPE_VALIDATION));
+        // other validations that merely mention examples are not example mismatches
+        assertFalse(ValidationMode.isExampleValidation("http://a.ml/vocabularies/amf/validation#unsupported-example-media-type"));
+        assertFalse(ValidationMode.isExampleValidation("http://a.ml/vocabularies/amf/parser#exclusive-properties-error"));
+        assertFalse(ValidationMode.isExampleValidation(null));
+    }
+}
@@ -0,0 +1,54 @@
+package org.mule.maven.exchange.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ApiDocumentsTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void ramlDocumentsHaveAHeader() throws IOException {
+        assertTrue(ApiDocuments.isApiDocument(file("api.raml", "#%RAML 1.0\ntitle: Api")));
+        assertTrue(ApiDocuments.isApiDocument(file("user.raml", "#%RAML 1.0 DataType\ntype: object")));
+        assertTrue(ApiDocuments.isApiDocument(file("bom.raml", "\uFEFF#%RAML 0.8\ntitle: Api")));
+        // snippets are only valid where they are included
+        assertFalse(ApiDocuments.isApiDocument(file("snippet.raml", "type: object\nproperties:\n  name: string")));
+        assertFalse(ApiDocuments.isApiDocument(file("empty.raml", "")));
+    }
+
+    @Test
+    public void oasDocumentsHaveATopLevelVersion() throws IOException {
+        assertTrue(ApiDocuments.isApiDocument(file("api.yaml", "# comment\nopenapi: 3.0.0\ninfo:\n  title: Api")));
+        assertTrue(ApiDocuments.isApiDocument(file("api.yml", "info:\n  title: Api\n\"swagger\": \"2.0\"")));
+        assertTrue(ApiDocuments.isApiDocument(file("api.json", "{\"info\": {\"title\": \"Api\"}, \"openapi\": \"3.0.0\"}")));
+        assertTrue(ApiDocuments.isApiDocument(file("flow.yaml", "  {\"swagger\": \"2.0\"}")));
+    }
+
+    @Test
+    public void examplesAndSchemasAreNotDocuments() throws IOException {
+        assertFalse(ApiDocuments.isApiDocument(file("example.yaml", "description: generated by openapi\nspec:\n  swagger: 2.0")));
+        assertFalse(ApiDocuments.isApiDocument(file("example.json", "{\"spec\": {\"openapi\": \"3.0.0\"}, \"tool\": \"swagger\"}")));
+        assertFalse(ApiDocuments.isApiDocument(file("schema.json", "{\"$schema\": \"http://json-schema.org/draft-07/schema#\", \"title\": \"openapi\"}")));
+        assertFalse(ApiDocuments.isApiDocument(file("list.json", "[{\"openapi\": \"3.0.0\"}]")));
+        assertFalse(ApiDocuments.isApiDocument(file("broken.json", "{\"openapi")));
+        assertFalse(ApiDocuments.isApiDocument(file("exchange.json", "{\"openapi\": \"3.0.0\"}")));
+        assertFalse(ApiDocuments.isApiDocument(file("notes.txt", "openapi: 3.0.0")));
+    }
+
+    private File file(String name, String content) throws IOException {
+        final File file = new File(temporaryFolder.getRoot(), name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,88 @@
+package org.mule.maven.exchange.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ArchiveIOTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void unzipEveryEntry() throws IOException {
+        // bigger than the buffer, so that it's read in several chunks
+        final byte[] large = new byte[ArchiveIO.BUFFER_SIZE * 3 + 17];
+        new Random(7).nextBytes(large);
+        final File zip = zip("api.raml", "#%RAML 1.0".getBytes(StandardCharsets.UTF_8), "types/", null, "types/large.bin", large);
+        final File target = temporaryFolder.newFolder("target");
+
+        ArchiveIO.unzip(zip, target);
+
+        assertEquals("#%RAML 1.0", new String(Files.readAllBytes(new File(target, "api.raml").toPath()), StandardCharsets.UTF_8));
+        assertTrue(Files.isDirectory(new File(target, "types").toPath()));
+        assertEquals(new String(large, StandardCharsets.ISO_8859_1), new String(Files.readAllBytes(new File(target, "types/large.bin").toPath()), StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void unzipOnlyTheAcceptedEntries() throws IOException {
+        final File zip = zip("api.raml", "#%RAML 1.0".getBytes(StandardCharsets.UTF_8), "exchange.json", "{}".getBytes(StandardCharsets.UTF_8));
+        final File target = temporaryFolder.newFolder("target");
+
+        ArchiveIO.unzip(zip, target, name -> name.endsWith(".raml"));
+
+        assertTrue(new File(target, "api.raml").isFile());
+        assertFalse(new File(target, "exchange.json").exists());
+    }
+
+    @Test
+    public void failEntriesOutsideOfTheTarget() throws IOException {
+        final File zip = zip("../evil.raml", "#%RAML 1.0".getBytes(StandardCharsets.UTF_8));
+        final File target = temporaryFolder.newFolder("target");
+        try {
+            ArchiveIO.unzip(zip, target);
+            fail("The entry is outside of the target directory");
+        } catch (ZipException e) {
+            assertFalse(new File(temporaryFolder.getRoot(), "evil.raml").exists());
+        }
+        try {
+            ArchiveIO.unzip(zip, target, name -> true);
+            fail("The entry is outside of the target directory");
+        } catch (ZipException e) {
+            assertFalse(new File(temporaryFolder.getRoot(), "evil.raml").exists());
+        }
+    }
+
+    /**
+     * @param entries pairs of entry name and content, a {@code null} content for directories
+     */
+    private File zip(Object... entries) throws IOException {
+        final File zip = new File(temporaryFolder.getRoot(), "archive-" + System.nanoTime() + ".zip");
+        try (OutputStream output = Files.newOutputStream(zip.toPath());
+             ZipOutputStream zipOutputStream = new ZipOutputStream(output)) {
+            for (int i = 0; i < entries.length; i += 2) {
+                zipOutputStream.putNextEntry(new ZipEntry((String) entries[i]));
+                if (entries[i + 1] != null) {
+                    zipOutputStream.write((byte[]) entries[i + 1]);
+                }
+                zipOutputStream.closeEntry();
+            }
+        }
+        return zip;
+    }
+}
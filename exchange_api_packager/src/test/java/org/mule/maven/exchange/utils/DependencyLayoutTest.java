@@ -0,0 +1,76 @@
+package org.mule.maven.exchange.utils;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class DependencyLayoutTest {
+
+    private static final String UUID_GROUP = "68ef9520-24e9-4cf2-b2f5-620025690913";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void onlyIndexResolvedZips() throws IOException {
+        final DependencyLayout layout = DependencyLayout.of(Arrays.asList(
+                artifact("org.mule.types", "common-types", "1.0.0", "zip", true),
+                artifact("org.mule", "connector", "1.0.0", "jar", true),
+                artifact(UUID_GROUP, "flights-example", "1.0.1", "zip", true),
+                artifact("org.mule", "unresolved", "1.0.0", "zip", false)));
+
+        final List<String> paths = new ArrayList<>();
+        for (DependencyLayout.Module module : layout.getModules()) {
+            paths.add(module.getPath());
+        }
+        assertEquals(Arrays.asList("org.mule.types/common-types/1.0.0", UUID_GROUP + "/flights-example/1.0.1"), paths);
+        assertEquals("common-types-1.0.0.zip", layout.getModules().get(0).getArchive().getName());
+    }
+
+    @Test
+    public void resolvePathsInBothLayouts() throws IOException {
+        final DependencyLayout layout = DependencyLayout.of(Arrays.asList(
+                artifact("org.mule.types", "common-types", "1.0.0", "zip", true),
+                artifact(UUID_GROUP, "flights-example", "1.0.1", "zip", true)));
+
+        // Exchange layout, kept as it is
+        assertEquals("org.mule.types/common-types/1.0.0/types/date.raml", layout.toExchangePath("org.mule.types/common-types/1.0.0/types/date.raml"));
+        assertEquals(UUID_GROUP + "/flights-example/1.0.1/example.json", layout.toExchangePath(UUID_GROUP + "/flights-example/1.0.1/example.json"));
+        // repository layout, moved to the Exchange one
+        assertEquals("org.mule.types/common-types/1.0.0/types/date.raml", layout.toExchangePath("org/mule/types/common-types/1.0.0/types/date.raml"));
+        assertEquals("org.mule.types/common-types/1.0.0/date.raml", layout.toExchangePath("org/mule/types/common-types/1.0.0/date.raml"));
+    }
+
+    @Test
+    public void keepPathsOfOtherDependencies() throws IOException {
+        final DependencyLayout layout = DependencyLayout.of(Arrays.asList(artifact("org.mule.types", "common-types", "1.0.0", "zip", true)));
+
+        assertEquals("org/mule/types/common-types/2.0.0/date.raml", layout.toExchangePath("org/mule/types/common-types/2.0.0/date.raml"));
+        assertEquals("org/mule/common-types/1.0.0/date.raml", layout.toExchangePath("org/mule/common-types/1.0.0/date.raml"));
+        assertEquals("org.mule.types/common-types", layout.toExchangePath("org.mule.types/common-types"));
+        assertEquals("date.raml", layout.toExchangePath("date.raml"));
+    }
+
+    private Artifact artifact(String groupId, String artifactId, String version, String type, boolean resolved) throws IOException {
+        final Artifact artifact = new DefaultArtifact(groupId, artifactId, VersionRange.createFromVersion(version),
+                Artifact.SCOPE_COMPILE, type, null, new DefaultArtifactHandler(type));
+        final File file = new File(temporaryFolder.getRoot(), artifactId + "-" + version + "." + type);
+        if (resolved) {
+            file.createNewFile();
+        }
+        artifact.setFile(file);
+        return artifact;
+    }
+}
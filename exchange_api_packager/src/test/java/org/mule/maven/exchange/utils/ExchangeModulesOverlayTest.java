@@ -0,0 +1,118 @@
+package org.mule.maven.exchange.utils;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ExchangeModulesOverlayTest {
+
+    private static final String GROUP = "68ef9520-24e9-4cf2-b2f5-620025690913";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void serveEntriesByTheirExchangeModulesPath() throws IOException {
+        try (ExchangeModulesOverlay overlay = new ExchangeModulesOverlay()
+                .add(GROUP, "types", "1.0.0", zip("types.zip", "types/user.raml", "type: object", "dir/", null))) {
+            assertEquals("type: object", read(overlay, GROUP + "/types/1.0.0/types/user.raml"));
+            assertEquals("type: object", read(overlay, "/" + GROUP + "/types/1.0.0/types/user.raml"));
+            assertNull(overlay.read(GROUP + "/types/1.0.0/types/missing.raml"));
+            assertNull(overlay.read(GROUP + "/types/1.0.0/dir"));
+            assertNull(overlay.read(GROUP + "/types/2.0.0/types/user.raml"));
+            assertNull(overlay.read(GROUP + "/types/1.0.0"));
+            assertNull(overlay.read("api.raml"));
+        }
+    }
+
+    @Test
+    public void preferTheLastArchiveOfTheSameDependency() throws IOException {
+        try (ExchangeModulesOverlay overlay = new ExchangeModulesOverlay()
+                .add(GROUP, "types", "1.0.0", zip("first.zip", "user.raml", "first", "only-first.raml", "first"))
+                .add(GROUP, "types", "1.0.0", zip("second.zip", "user.raml", "second"))) {
+            assertEquals("second", read(overlay, GROUP + "/types/1.0.0/user.raml"));
+            assertEquals("first", read(overlay, GROUP + "/types/1.0.0/only-first.raml"));
+        }
+    }
+
+    @Test
+    public void serveTheRepositoryLayoutOfTheDependencies() throws IOException {
+        final Artifact artifact = new DefaultArtifact("org.mule.types", "common", VersionRange.createFromVersion("1.0.0"),
+                Artifact.SCOPE_COMPILE, "zip", null, new DefaultArtifactHandler("zip"));
+        artifact.setFile(zip("common.zip", "date.raml", "type: date-only"));
+        try (ExchangeModulesOverlay overlay = new ExchangeModulesOverlay(DependencyLayout.of(Collections.singletonList(artifact)))) {
+            assertEquals("type: date-only", read(overlay, "org.mule.types/common/1.0.0/date.raml"));
+            assertEquals("type: date-only", read(overlay, "org/mule/types/common/1.0.0/date.raml"));
+        }
+    }
+
+    @Test
+    public void readConcurrently() throws Exception {
+        final List<String> entries = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            entries.add("types/type" + i + ".raml");
+            entries.add("type: type" + i);
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (ExchangeModulesOverlay overlay = new ExchangeModulesOverlay().add(GROUP, "types", "1.0.0", zip("types.zip", entries.toArray(new String[0])))) {
+            final List<Future<Boolean>> reads = new ArrayList<>();
+            for (int round = 0; round < 10; round++) {
+                for (int i = 0; i < 50; i++) {
+                    final int index = i;
+                    reads.add(executor.submit((Callable<Boolean>) () -> ("type: type" + index).equals(read(overlay, GROUP + "/types/1.0.0/types/type" + index + ".raml"))));
+                }
+            }
+            for (Future<Boolean> read : reads) {
+                assertTrue(read.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String read(ExchangeModulesOverlay overlay, String path) throws IOException {
+        final byte[] content = overlay.read(path);
+        return content != null ? new String(content, StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * @param entries pairs of entry name and content, a {@code null} content for directories
+     */
+    private File zip(String name, String... entries) throws IOException {
+        final File zip = new File(temporaryFolder.getRoot(), name);
+        try (OutputStream output = Files.newOutputStream(zip.toPath());
+             ZipOutputStream zipOutputStream = new ZipOutputStream(output)) {
+            for (int i = 0; i < entries.length; i += 2) {
+                zipOutputStream.putNextEntry(new ZipEntry(entries[i]));
+                if (entries[i + 1] != null) {
+                    zipOutputStream.write(entries[i + 1].getBytes(StandardCharsets.UTF_8));
+                }
+                zipOutputStream.closeEntry();
+            }
+        }
+        return zip;
+    }
+}
@@ -0,0 +1,200 @@
+package org.mule.maven.exchange.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mule.maven.exchange.ApiSourceFileFilter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ExchangeModulesResourceLoaderTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void loadProjectFilesWithOverlayAndExecutor() throws Exception {
+        final File root = temporaryFolder.newFolder("project");
+        write(new File(root, "api.raml"), "#%RAML 1.0\ntitle: Api");
+        write(new File(root, "exchange_modules/org.mule.test/fragment/1.0.0/types.raml"), "#%RAML 1.0 Library");
+        final File archive = createArchive("fragment.zip", "types.raml", "#%RAML 1.0 Library\n# from the archive");
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (ExchangeModulesOverlay overlay = new ExchangeModulesOverlay().add("org.mule.test", "fragment", "1.0.0", archive)) {
+            final ExchangeModulesResourceLoader loader = new ExchangeModulesResourceLoader(root.getAbsolutePath(), overlay).withExecutor(executor);
+
+            // project files are served from the disk, whatever the length of their path
+            loader.fetch(new File(root, "api.raml").toURI().toString()).get();
+            assertEquals("#%RAML 1.0\ntitle: Api", loader.load(projectKey(new File(root, "api.raml"))));
+            assertNull(loader.load("/api.raml"));
+
+            // while exchange_modules are served from the overlay first
+            loader.fetch("file:" + root.getAbsolutePath() + "/exchange_modules/org.mule.test/fragment/1.0.0/types.raml").get();
+            assertEquals("#%RAML 1.0 Library\n# from the archive", loader.load("/exchange_modules/org.mule.test/fragment/1.0.0/types.raml"));
+            assertEquals(0, loader.getNotFoundHits());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void ignoreTheExchangeModulesOfTheSourcesWithOverlay() throws Exception {
+        final File root = temporaryFolder.newFolder("project");
+        // left behind by an older build, the overlay doesn't have it
+        write(new File(root, "exchange_modules/org.mule.test/fragment/1.0.0/stale.raml"), "#%RAML 1.0 Library");
+        final File archive = createArchive("fragment.zip", "types.raml", "#%RAML 1.0 Library");
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (ExchangeModulesOverlay overlay = new ExchangeModulesOverlay().add("org.mule.test", "fragment", "1.0.0", archive)) {
+            final ExchangeModulesResourceLoader loader = new ExchangeModulesResourceLoader(root.getAbsolutePath(), overlay).withExecutor(executor);
+            assertEquals(0, loader.prefetch());
+            try {
+                loader.fetch("file:" + root.getAbsolutePath() + "/exchange_modules/org.mule.test/fragment/1.0.0/stale.raml").get();
+                fail("Only the overlay serves exchange_modules");
+            } catch (ExecutionException e) {
+                // expected
+            }
+            assertNull(loader.load("/exchange_modules/org.mule.test/fragment/1.0.0/stale.raml"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void prefetchOnlyTheSourcesOfTheProject() throws Exception {
+        final File root = temporaryFolder.newFolder("project");
+        final File buildDirectory = new File(root, "target");
+        write(new File(root, "api.raml"), "#%RAML 1.0\ntitle: Api");
+        write(new File(root, "types/user.raml"), "#%RAML 1.0 DataType");
+        write(new File(buildDirectory, "fat-api/api.raml"), "#%RAML 1.0\ntitle: Api");
+        write(new File(root, ".git/config"), "[core]");
+        write(new File(root, ".mvn/maven.config"), "-T 4");
+        write(new File(root, ".apivcs/branch.json"), "{}");
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final ExchangeModulesResourceLoader loader = new ExchangeModulesResourceLoader(root.getAbsolutePath(), new ExchangeModulesOverlay())
+                    .withExecutor(executor)
+                    .withProjectFilter(new ApiSourceFileFilter(root, buildDirectory));
+            assertEquals(2, loader.prefetch());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failMissingResources() throws Exception {
+        final File root = temporaryFolder.newFolder("project");
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final ExchangeModulesResourceLoader loader = new ExchangeModulesResourceLoader(root.getAbsolutePath(), new ExchangeModulesOverlay()).withExecutor(executor);
+            final String missing = "file:" + root.getAbsolutePath() + "/exchange_modules/org.mule.test/fragment/1.0.0/missing.raml";
+            for (int i = 0; i < 2; i++) {
+                try {
+                    loader.fetch(missing).get();
+                    fail("The resource doesn't exist");
+                } catch (ExecutionException e) {
+                    // expected
+                }
+            }
+            assertEquals(1, loader.getNotFoundHits());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failUnreadableResourcesWithoutRememberingThem() throws Exception {
+        final File root = temporaryFolder.newFolder("project");
+        final File archive = temporaryFolder.newFile("fragment.zip");
+        write(archive, "not an archive");
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (ExchangeModulesOverlay overlay = new ExchangeModulesOverlay().add("org.mule.test", "fragment", "1.0.0", archive)) {
+            final ExchangeModulesResourceLoader loader = new ExchangeModulesResourceLoader(root.getAbsolutePath(), overlay).withExecutor(executor);
+            final String resource = "file:" + root.getAbsolutePath() + "/exchange_modules/org.mule.test/fragment/1.0.0/types.raml";
+            try {
+                loader.fetch(resource).get();
+                fail("The archive can't be read");
+            } catch (ExecutionException e) {
+                assertTrue(String.valueOf(e.getCause()), e.getCause().getCause() instanceof IOException);
+            }
+
+            // the archive is fixed in the meantime
+            Files.delete(archive.toPath());
+            Files.copy(createArchive("fixed.zip", "types.raml", "#%RAML 1.0 Library").toPath(), archive.toPath());
+            loader.fetch(resource).get();
+            assertEquals(0, loader.getNotFoundHits());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void loadRelativeReferences() throws Exception {
+        final File root = temporaryFolder.newFolder("project");
+        write(new File(root, "exchange_modules/org.mule.test/fragment/1.0.0/types/user.raml"), "#%RAML 1.0 DataType");
+        write(new File(root, "common/types.raml"), "#%RAML 1.0 Library");
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final ExchangeModulesResourceLoader loader = new ExchangeModulesResourceLoader(root.getAbsolutePath()).withExecutor(executor);
+            loader.fetch("file:" + root.getAbsolutePath() + "/exchange_modules/org.mule.test/fragment/1.0.0/resources/../types/./user.raml").get();
+            loader.fetch("file:" + root.getAbsolutePath() + "/api/../common/types.raml").get();
+            assertEquals(0, loader.getNotFoundHits());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void loadFilesMissingFromTheIndex() throws Exception {
+        final File root = temporaryFolder.newFolder("project");
+        write(new File(root, "exchange_modules/org.mule.test/fragment/1.0.0/types.raml"), "#%RAML 1.0 Library");
+        final ExchangeModulesResourceLoader loader = new ExchangeModulesResourceLoader(root.getAbsolutePath());
+        loader.fetch("file:" + root.getAbsolutePath() + "/exchange_modules/org.mule.test/fragment/1.0.0/types.raml").get();
+
+        write(new File(root, "exchange_modules/org.mule.test/fragment/1.0.0/user.raml"), "#%RAML 1.0 DataType");
+        assertEquals("#%RAML 1.0 DataType", loader.load("/exchange_modules/org.mule.test/fragment/1.0.0/user.raml"));
+    }
+
+    @Test
+    public void normalizeReferences() {
+        assertEquals("file:/project/exchange_modules/g/a/v/types/user.raml",
+                ExchangeModulesResourceLoader.normalize("file:/project/exchange_modules/g/a/v/resources/../types/./user.raml"));
+        assertEquals("file:///project/common/types.raml", ExchangeModulesResourceLoader.normalize("file:///project/api/../common/types.raml"));
+        assertEquals("file:/project/api.raml", ExchangeModulesResourceLoader.normalize("file:/project/api.raml"));
+    }
+
+    private static String projectKey(File file) {
+        final String path = file.getAbsolutePath().replace('\\', '/');
+        return path.startsWith("/") ? path.substring(1) : path;
+    }
+
+    private File createArchive(String name, String entry, String content) throws IOException {
+        final File archive = temporaryFolder.newFile(name);
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive.toPath()))) {
+            zip.putNextEntry(new ZipEntry(entry));
+            zip.write(content.getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        return archive;
+    }
+
+    static void write(File file, String content) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        try (OutputStream outputStream = Files.newOutputStream(file.toPath())) {
+            outputStream.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.mule.maven.exchange.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ExtractionStampTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void skipUntouchedExtractions() throws IOException {
+        final File directory = extract(zip("v1.zip", "api.raml", "#%RAML 1.0", "types/type.raml", "type: string"));
+
+        final ExtractionStamp stamp = ExtractionStamp.read(stampFile());
+        assertNotNull(stamp);
+        assertEquals("checksum", stamp.getChecksum());
+        assertTrue(stamp.isExtractedIn(directory));
+        assertEquals(Collections.emptyList(), stamp.getChangedEntries(stamp, directory));
+    }
+
+    @Test
+    public void detectFilesModifiedWithTheSameSize() throws IOException {
+        final File directory = extract(zip("v1.zip", "api.raml", "#%RAML 1.0", "types/type.raml", "type: string"));
+        final File type = new File(directory, "types/type.raml");
+        Files.write(type.toPath(), "type: number".getBytes(StandardCharsets.UTF_8));
+        // edited later on, not within the same millisecond of the extraction
+        assertTrue(type.setLastModified(type.lastModified() + 2_000));
+        final ExtractionStamp stamp = ExtractionStamp.read(stampFile());
+
+        assertFalse(stamp.isExtractedIn(directory));
+        assertEquals(Collections.singletonList("types/type.raml"), stamp.getChangedEntries(stamp, directory));
+    }
+
+    @Test
+    public void acceptTouchedFilesWithTheSameContent() throws IOException {
+        final File directory = extract(zip("v1.zip", "api.raml", "#%RAML 1.0"));
+        final File api = new File(directory, "api.raml");
+        assertTrue(api.setLastModified(api.lastModified() - 60_000));
+        final ExtractionStamp stamp = ExtractionStamp.read(stampFile());
+
+        assertTrue(stamp.isExtractedIn(directory));
+        assertEquals(Collections.emptyList(), stamp.getChangedEntries(stamp, directory));
+    }
+
+    @Test
+    public void detectChangedAndRemovedEntries() throws IOException {
+        final File directory = extract(zip("v1.zip", "api.raml", "#%RAML 1.0", "types/type.raml", "type: string", "old.raml", "#%RAML 1.0 Library"));
+        final ExtractionStamp previous = ExtractionStamp.read(stampFile());
+        final ExtractionStamp current = ExtractionStamp.of(zip("v2.zip", "api.raml", "#%RAML 1.0", "types/type.raml", "type: number", "new.raml", "#%RAML 1.0 Library"), "other");
+
+        assertEquals(Arrays.asList("types/type.raml", "new.raml"), current.getChangedEntries(previous, directory));
+        assertEquals(Collections.singletonList("old.raml"), current.getRemovedEntries(previous));
+        assertEquals(Arrays.asList("api.raml", "types/type.raml", "new.raml"), current.getChangedEntries(null, directory));
+    }
+
+    @Test
+    public void detectMissingFiles() throws IOException {
+        final File directory = extract(zip("v1.zip", "api.raml", "#%RAML 1.0", "types/type.raml", "type: string"));
+        Files.delete(new File(directory, "types/type.raml").toPath());
+        final ExtractionStamp stamp = ExtractionStamp.read(stampFile());
+
+        assertFalse(stamp.isExtractedIn(directory));
+        assertEquals(Collections.singletonList("types/type.raml"), stamp.getChangedEntries(stamp, directory));
+    }
+
+    @Test
+    public void ignoreUnreadableStamps() throws IOException {
+        assertNull(ExtractionStamp.read(stampFile()));
+        Files.createDirectories(stampFile().getParentFile().toPath());
+        // stamp of a previous version, without modification times
+        Files.write(stampFile().toPath(), Arrays.asList("# exchange dependency stamp", "checksum=checksum", "entry:1a2b|10|api.raml"), StandardCharsets.UTF_8);
+        assertNull(ExtractionStamp.read(stampFile()));
+        Files.write(stampFile().toPath(), Arrays.asList("# exchange dependency stamp v2", "checksum=checksum", "entry:broken"), StandardCharsets.UTF_8);
+        assertNull(ExtractionStamp.read(stampFile()));
+    }
+
+    private File extract(File zip) throws IOException {
+        final File directory = new File(temporaryFolder.getRoot(), "extracted");
+        ArchiveIO.unzip(zip, directory);
+        ExtractionStamp.of(zip, "checksum").save(stampFile(), directory);
+        return directory;
+    }
+
+    private File stampFile() {
+        return new File(temporaryFolder.getRoot(), "stamps/dependency.stamp");
+    }
+
+    /**
+     * @param entries pairs of entry name and content
+     */
+    private File zip(String name, String... entries) throws IOException {
+        final File zip = new File(temporaryFolder.getRoot(), name);
+        try (OutputStream output = Files.newOutputStream(zip.toPath());
+             ZipOutputStream zipOutputStream = new ZipOutputStream(output)) {
+            for (int i = 0; i < entries.length; i += 2) {
+                zipOutputStream.putNextEntry(new ZipEntry(entries[i]));
+                zipOutputStream.write(entries[i + 1].getBytes(StandardCharsets.UTF_8));
+                zipOutputStream.closeEntry();
+            }
+        }
+        return zip;
+    }
+}
@@ -0,0 +1,107 @@
+package org.mule.maven.exchange.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FragmentCacheTest {
+
+    private static final String TYPES = "#%RAML 1.0 Library\ntypes:\n  User: object";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shareTheExtractionAmongProjects() throws IOException {
+        final File archive = createArchive();
+        final FragmentCache cache = new FragmentCache(temporaryFolder.newFolder("cache"));
+        final File first = temporaryFolder.newFolder("first");
+        final File second = temporaryFolder.newFolder("second");
+        cache.extract("org.mule.test", "fragment", "1.0.0", archive, first);
+        cache.extract("org.mule.test", "fragment", "1.0.0", archive, second);
+
+        assertEquals(TYPES, read(new File(first, "types/user.raml")));
+        assertEquals(TYPES, read(new File(second, "types/user.raml")));
+        final File cached = new File(cache.get("org.mule.test", "fragment", "1.0.0", archive, ArchiveIO.sha256(archive)), "types/user.raml");
+        if (Files.isSameFile(cached.toPath(), new File(first, "types/user.raml").toPath())) {
+            assertFalse("Hard linked files can't be modified in place", Files.getPosixFilePermissions(cached.toPath()).contains(PosixFilePermission.OWNER_WRITE));
+        }
+    }
+
+    @Test
+    public void extractAgainModifiedEntries() throws IOException {
+        final File archive = createArchive();
+        final String checksum = ArchiveIO.sha256(archive);
+        final FragmentCache cache = new FragmentCache(temporaryFolder.newFolder("cache"));
+        final File cached = new File(cache.get("org.mule.test", "fragment", "1.0.0", archive, checksum), "types/user.raml");
+
+        // an in place edit through a hard link, despite the file being read only
+        cached.setWritable(true);
+        Files.write(cached.toPath(), "poisoned".getBytes(StandardCharsets.UTF_8));
+
+        final File project = temporaryFolder.newFolder("project");
+        cache.extract("org.mule.test", "fragment", "1.0.0", archive, checksum, project, name -> true);
+        assertEquals(TYPES, read(new File(project, "types/user.raml")));
+    }
+
+    @Test
+    public void extractAgainEntriesWithoutIndex() throws IOException {
+        final File archive = createArchive();
+        final String checksum = ArchiveIO.sha256(archive);
+        final File cacheDirectory = temporaryFolder.newFolder("cache");
+        // layout of a previous version of the cache, the files straight into the fragment directory
+        final File previous = new File(cacheDirectory, "org.mule.test/fragment/1.0.0/" + checksum);
+        ArchiveIO.unzip(archive, previous);
+
+        final File project = temporaryFolder.newFolder("project");
+        new FragmentCache(cacheDirectory).extract("org.mule.test", "fragment", "1.0.0", archive, checksum, project, name -> true);
+        assertEquals(TYPES, read(new File(project, "types/user.raml")));
+        assertFalse(new File(project, "content").exists());
+    }
+
+    @Test
+    public void deleteStaleTemporalDirectories() throws IOException {
+        final File archive = createArchive();
+        final File cacheDirectory = temporaryFolder.newFolder("cache");
+        final File gavDirectory = new File(cacheDirectory, "org.mule.test/fragment/1.0.0");
+        final File stale = new File(gavDirectory, "0123.tmp-42");
+        final File running = new File(gavDirectory, "4567.tmp-42");
+        assertTrue(new File(stale, "content").mkdirs() && running.mkdirs());
+        assertTrue(stale.setLastModified(System.currentTimeMillis() - 24 * 60 * 60 * 1000));
+
+        new FragmentCache(cacheDirectory).extract("org.mule.test", "fragment", "1.0.0", archive, temporaryFolder.newFolder("project"));
+        assertFalse("Left behind by a killed build", stale.exists());
+        assertTrue("Might belong to a concurrent build", running.exists());
+    }
+
+    private File createArchive() throws IOException {
+        final File archive = new File(temporaryFolder.getRoot(), "fragment.zip");
+        if (!archive.exists()) {
+            try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive.toPath()))) {
+                zip.putNextEntry(new ZipEntry("types/user.raml"));
+                zip.write(TYPES.getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+                zip.putNextEntry(new ZipEntry("exchange.json"));
+                zip.write("{\"main\": \"types/user.raml\"}".getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return archive;
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
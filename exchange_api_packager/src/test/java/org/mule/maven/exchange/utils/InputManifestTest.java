@@ -0,0 +1,115 @@
+package org.mule.maven.exchange.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class InputManifestTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void matchUnchangedInputs() throws IOException {
+        final File sources = createSources();
+        final File manifestFile = new File(temporaryFolder.getRoot(), "manifest");
+        assertFalse(manifest(sources, false).matches(manifestFile));
+
+        manifest(sources, false).save(manifestFile);
+
+        assertTrue(manifest(sources, false).matches(manifestFile));
+    }
+
+    @Test
+    public void detectChangedInputs() throws IOException {
+        final File sources = createSources();
+        final File manifestFile = new File(temporaryFolder.getRoot(), "manifest");
+        manifest(sources, false).save(manifestFile);
+
+        write(new File(sources, "types/type.raml"), "type: string\nrequired: true");
+        assertFalse(manifest(sources, false).matches(manifestFile));
+        manifest(sources, false).save(manifestFile);
+
+        write(new File(sources, "types/other.raml"), "type: number");
+        assertFalse(manifest(sources, false).matches(manifestFile));
+        manifest(sources, false).save(manifestFile);
+
+        Files.delete(new File(sources, "types/other.raml").toPath());
+        assertFalse(manifest(sources, false).matches(manifestFile));
+    }
+
+    @Test
+    public void detectContentChangesWithTheSameSizeAndTime() throws IOException {
+        final File sources = createSources();
+        final File type = new File(sources, "types/type.raml");
+        final long lastModified = type.lastModified();
+        final File manifestFile = new File(temporaryFolder.getRoot(), "manifest");
+        manifest(sources, false).save(manifestFile);
+        manifest(sources, true).save(new File(temporaryFolder.getRoot(), "hashed"));
+
+        write(type, "type: number");
+        assertTrue(type.setLastModified(lastModified));
+
+        // size and time only can't tell, the content hash can
+        assertTrue(manifest(sources, false).matches(manifestFile));
+        assertFalse(manifest(sources, true).matches(new File(temporaryFolder.getRoot(), "hashed")));
+    }
+
+    @Test
+    public void detectChangedOptionsAndOutputs() throws IOException {
+        final File sources = createSources();
+        final File output = new File(temporaryFolder.getRoot(), "api.zip");
+        write(output, "zip");
+        final File manifestFile = new File(temporaryFolder.getRoot(), "manifest");
+        manifest(sources, false).withOutputs(output).save(manifestFile);
+        assertTrue(manifest(sources, false).withOutputs(output).matches(manifestFile));
+
+        assertFalse(manifest(sources, false).addOption("classifier", "oas").withOutputs(output).matches(manifestFile));
+        assertFalse(manifest(sources, false).matches(manifestFile));
+
+        write(output, "truncated zip");
+        assertFalse(manifest(sources, false).withOutputs(output).matches(manifestFile));
+
+        Files.delete(output.toPath());
+        assertFalse(manifest(sources, false).withOutputs(output).matches(manifestFile));
+    }
+
+    @Test
+    public void handleMissingDirectoriesAndUnknownManifests() throws IOException {
+        final File missing = new File(temporaryFolder.getRoot(), "missing");
+        final File manifestFile = new File(temporaryFolder.getRoot(), "manifest");
+        new InputManifest(false).addDirectory("sources", missing, file -> true).save(manifestFile);
+        assertTrue(new InputManifest(false).addDirectory("sources", missing, file -> true).matches(manifestFile));
+        assertFalse(new InputManifest(false).addDirectory("sources", temporaryFolder.newFolder("empty"), file -> true).matches(manifestFile));
+
+        write(manifestFile, "something else");
+        assertFalse(new InputManifest(false).addDirectory("sources", missing, file -> true).matches(manifestFile));
+    }
+
+    private static InputManifest manifest(File sources, boolean hashContent) throws IOException {
+        return new InputManifest(hashContent)
+                .addOption("classifier", "raml")
+                .addDirectory("sources", sources, file -> !file.getName().startsWith("."));
+    }
+
+    private File createSources() throws IOException {
+        final File sources = temporaryFolder.newFolder("sources");
+        write(new File(sources, "api.raml"), "#%RAML 1.0");
+        write(new File(sources, "types/type.raml"), "type: string");
+        write(new File(sources, ".hidden"), "ignored");
+        return sources;
+    }
+
+    private static void write(File file, String content) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
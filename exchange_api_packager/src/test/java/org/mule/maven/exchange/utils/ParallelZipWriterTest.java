@@ -0,0 +1,183 @@
+package org.mule.maven.exchange.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParallelZipWriterTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void readBackWhatWasWritten() throws IOException {
+        final Map<String, String> entries = createEntries(200);
+        for (int threads : new int[]{1, 4}) {
+            final File zipFile = new File(temporaryFolder.newFolder("threads-" + threads), "api.zip");
+            try (ParallelZipWriter zip = new ParallelZipWriter(zipFile, threads)) {
+                for (Map.Entry<String, String> entry : entries.entrySet()) {
+                    zip.addEntry(entry.getKey(), entry.getValue().getBytes(StandardCharsets.UTF_8), 1_600_000_000_000L);
+                }
+                zip.finish();
+            }
+            assertEquals(entries, read(zipFile));
+        }
+        assertTrue("The output doesn't depend on the number of threads", Arrays.equals(
+                Files.readAllBytes(new File(temporaryFolder.getRoot(), "threads-1/api.zip").toPath()),
+                Files.readAllBytes(new File(temporaryFolder.getRoot(), "threads-4/api.zip").toPath())));
+    }
+
+    @Test
+    public void writeEntriesToSomeOfTheArchives() throws IOException {
+        final File source = temporaryFolder.newFile("api.raml");
+        Files.write(source.toPath(), "#%RAML 1.0\ntitle: Api".getBytes(StandardCharsets.UTF_8));
+        final File apiZip = new File(temporaryFolder.getRoot(), "api.zip");
+        final File fatApiZip = new File(temporaryFolder.getRoot(), "fat-api.zip");
+        try (ParallelZipWriter zip = new ParallelZipWriter(2, apiZip, fatApiZip)) {
+            zip.addEntry("api.raml", source);
+            zip.addEntry("exchange_modules/g/a/1.0.0/types.raml", "#%RAML 1.0 Library".getBytes(StandardCharsets.UTF_8), source.lastModified(), 1);
+            zip.finish();
+        }
+        assertEquals(Arrays.asList("api.raml"), new ArrayList<>(read(apiZip).keySet()));
+        assertEquals(Arrays.asList("api.raml", "exchange_modules/g/a/1.0.0/types.raml"), new ArrayList<>(read(fatApiZip).keySet()));
+        assertEquals("#%RAML 1.0\ntitle: Api", read(fatApiZip).get("api.raml"));
+    }
+
+    @Test
+    public void discardTheArchivesOnFailure() throws IOException {
+        for (int threads : new int[]{1, 4}) {
+            final File directory = temporaryFolder.newFolder("threads-" + threads);
+            final File zipFile = new File(directory, "api.zip");
+            try (ParallelZipWriter zip = new ParallelZipWriter(zipFile, threads)) {
+                zip.addEntry("api.raml", "#%RAML 1.0".getBytes(StandardCharsets.UTF_8), 0);
+                zip.addEntry("missing.raml", new File(directory, "missing.raml"));
+                zip.finish();
+                fail("The source doesn't exist");
+            } catch (IOException e) {
+                // expected
+            }
+            assertFalse(zipFile.exists());
+            assertEquals("No temporal file is left behind", 0, directory.list().length);
+        }
+    }
+
+    @Test
+    public void discardUnfinishedArchives() throws IOException {
+        final File zipFile = new File(temporaryFolder.getRoot(), "api.zip");
+        try (ParallelZipWriter zip = new ParallelZipWriter(zipFile, 1)) {
+            zip.addEntry("api.raml", "#%RAML 1.0".getBytes(StandardCharsets.UTF_8), 0);
+            // the caller failed before finishing, e.g.: while walking the sources
+        }
+        assertFalse(zipFile.exists());
+        assertEquals(0, temporaryFolder.getRoot().list().length);
+    }
+
+    @Test
+    public void streamLargeFiles() throws IOException {
+        final Map<String, String> entries = createEntries(40);
+        final File sources = temporaryFolder.newFolder("sources");
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            final File file = new File(sources, entry.getKey());
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.write(file.toPath(), entry.getValue().getBytes(StandardCharsets.UTF_8));
+            file.setLastModified(1_600_000_000_000L);
+        }
+        for (int threads : new int[]{1, 4}) {
+            final File directory = temporaryFolder.newFolder("threads-" + threads);
+            final File apiZip = new File(directory, "api.zip");
+            final File fatApiZip = new File(directory, "fat-api.zip");
+            // files over 1KB are streamed
+            try (ParallelZipWriter zip = new ParallelZipWriter(threads, 1024, apiZip, fatApiZip)) {
+                for (String name : entries.keySet()) {
+                    zip.addEntry(name, new File(sources, name));
+                }
+                zip.addEntry("exchange_modules/g/a/1.0.0/types.raml", new File(sources, entries.keySet().iterator().next()), 1);
+                zip.finish();
+            }
+            assertEquals(entries, read(apiZip));
+            assertEquals(entries.size() + 1, read(fatApiZip).size());
+        }
+        assertTrue("The output doesn't depend on the number of threads", Arrays.equals(
+                Files.readAllBytes(new File(temporaryFolder.getRoot(), "threads-1/fat-api.zip").toPath()),
+                Files.readAllBytes(new File(temporaryFolder.getRoot(), "threads-4/fat-api.zip").toPath())));
+    }
+
+    @Test
+    public void fallBackToZip64WhenNeeded() throws IOException {
+        final File large = temporaryFolder.newFile("large.raml");
+        final String largeContent = createEntries(50).toString();
+        Files.write(large.toPath(), largeContent.getBytes(StandardCharsets.UTF_8));
+        final File zipFile = new File(temporaryFolder.getRoot(), "api.zip");
+        final int count = 0xFFFF + 10;
+        try (ParallelZipWriter zip = new ParallelZipWriter(2, 1024, zipFile)) {
+            zip.addEntry("large.raml", large);
+            for (int i = 0; i < count; i++) {
+                zip.addEntry("entry-" + i, String.valueOf(i).getBytes(StandardCharsets.UTF_8), 1_600_000_000_000L);
+            }
+            zip.addEntry("last.raml", large);
+            zip.finish();
+        }
+        final Map<String, String> written = read(zipFile);
+        assertEquals(count + 2, written.size());
+        assertEquals(largeContent, written.get("large.raml"));
+        assertEquals("0", written.get("entry-0"));
+        assertEquals(String.valueOf(count - 1), written.get("entry-" + (count - 1)));
+        assertEquals(largeContent, written.get("last.raml"));
+        assertEquals("No temporal file is left behind", 2, temporaryFolder.getRoot().list().length);
+    }
+
+    private static Map<String, String> createEntries(int count) {
+        final Random random = new Random(42);
+        final Map<String, String> result = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            final StringBuilder content = new StringBuilder();
+            final int lines = random.nextInt(200);
+            for (int line = 0; line < lines; line++) {
+                content.append("line ").append(random.nextInt(1000)).append('\n');
+            }
+            result.put(String.format("dir-%d/entry-%d.raml", i % 7, i), content.toString());
+        }
+        return result;
+    }
+
+    private static Map<String, String> read(File zipFile) throws IOException {
+        final Map<String, String> result = new LinkedHashMap<>();
+        try (ZipFile zip = new ZipFile(zipFile)) {
+            final Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                try (InputStream inputStream = zip.getInputStream(entry)) {
+                    final ByteArrayOutputStream content = new ByteArrayOutputStream();
+                    final byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = inputStream.read(buffer)) != -1) {
+                        content.write(buffer, 0, read);
+                    }
+                    result.put(entry.getName(), new String(content.toByteArray(), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,281 @@
+package org.mule.maven.exchange;
+
+import org.apache.maven.model.Model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cache of the Maven models generated from exchange.json files, so that the several reads Maven does for the same
+ * module while building the reactor do not parse, guess the orgId and serialize the model over and over.
+ * <p>
+ * The in memory entries are keyed by the absolute path of the exchange.json file, and are only valid while the
+ * fingerprint (content hash of the file plus everything else that affects the generated model) stays the same. Callers
+ * always get a clone of the cached {@link Model}, as Maven mutates the models it reads.
+ * <p>
+ * On top of that, the serialized POM is also persisted in a content addressed directory (see
+ * {@link #MODEL_CACHE_DIRECTORY}) so that following builds can skip the generation altogether. Every change of an
+ * exchange.json adds a new file there, so the first time each build persists a POM it also evicts the files that
+ * weren't used for {@link #MAX_AGE_MILLIS} and, past {@link #MAX_ENTRIES}, the least recently used ones (using a file
+ * refreshes its modification time).
+ */
+class ExchangeModelCache {
+
+    private static final Logger LOGGER = Logger.getLogger(ExchangeModelCache.class.getName());
+
+    /**
+     * System property to override the directory of the persistent cache, defaults to {@code ~/.m2/exchange-model-cache}
+     */
+    static final String MODEL_CACHE_DIRECTORY = "exchange.maven.modelCache.directory";
+
+    /**
+     * System property to disable the persistent cache (the in memory one is always enabled)
+     */
+    static final String MODEL_CACHE_SKIP = "exchange.maven.modelCache.skip";
+
+    /**
+     * persisted POMs not used for this long are evicted
+     */
+    static final long MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(30);
+
+    /**
+     * number of persisted POMs kept at most, the least recently used ones are evicted first
+     */
+    static final int MAX_ENTRIES = 1000;
+
+    /**
+     * temporal files older than this are considered left behind by a build that was killed
+     */
+    private static final long STALE_TEMPORAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final File directory;
+
+    private final long maxAgeMillis;
+
+    private final int maxEntries;
+
+    private final AtomicBoolean evicted = new AtomicBoolean();
+
+    ExchangeModelCache() {
+        this(Boolean.getBoolean(MODEL_CACHE_SKIP) ? null : new File(System.getProperty(MODEL_CACHE_DIRECTORY,
+                System.getProperty("user.home") + File.separator + ".m2" + File.separator + "exchange-model-cache")));
+    }
+
+    /**
+     * @param directory where to persist the generated POMs, or {@code null} to only cache them in memory
+     */
+    ExchangeModelCache(File directory) {
+        this(directory, MAX_AGE_MILLIS, MAX_ENTRIES);
+    }
+
+    /**
+     * @param maxAgeMillis persisted POMs not used for this long are evicted
+     * @param maxEntries   number of persisted POMs kept at most
+     */
+    ExchangeModelCache(File directory, long maxAgeMillis, int maxEntries) {
+        this.directory = directory;
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @param location    absolute path of the exchange.json file
+     * @param fingerprint value obtained through {@link #fingerprint(File, byte[], ExchangeModelSettings)} for the current content of the file
+     * @return a clone of the cached entry, or {@code null} if there's none or it's stale
+     */
+    Entry get(String location, String fingerprint) {
+        final Entry entry = entries.get(location);
+        if (entry != null && entry.fingerprint.equals(fingerprint)) {
+            hits.incrementAndGet();
+            return new Entry(fingerprint, entry.model.clone(), entry.xml);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    void put(String location, String fingerprint, Model model, String xml) {
+        entries.put(location, new Entry(fingerprint, model.clone(), xml));
+    }
+
+    /**
+     * @param fingerprint value obtained through {@link #fingerprint(File, byte[], ExchangeModelSettings)}
+     * @return the persisted POM for the given fingerprint, or {@code null} if there's none (or it can't be read)
+     */
+    String load(String fingerprint) {
+        if (directory == null) {
+            return null;
+        }
+        final File cached = getPersistedFile(fingerprint);
+        if (!cached.isFile()) {
+            return null;
+        }
+        try {
+            final String xml = new String(Files.readAllBytes(cached.toPath()), StandardCharsets.UTF_8);
+            // recently used, so that it's evicted last
+            cached.setLastModified(System.currentTimeMillis());
+            return xml;
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, String.format("Unable to read cached model [%s]", cached.getAbsolutePath()), e);
+            return null;
+        }
+    }
+
+    /**
+     * Persists the POM for the given fingerprint. The file is written aside and then moved, so that concurrent builds
+     * sharing the directory never see a partial file. Failures are ignored, as the cache is just an optimization.
+     * <p>
+     * The first store of this cache also evicts the old persisted POMs.
+     */
+    void store(String fingerprint, String xml) {
+        if (directory == null) {
+            return;
+        }
+        final Path target = getPersistedFile(fingerprint).toPath();
+        try {
+            Files.createDirectories(directory.toPath());
+            final Path temporal = Files.createTempFile(directory.toPath(), "model", ".tmp");
+            try {
+                Files.write(temporal, xml.getBytes(StandardCharsets.UTF_8));
+                try {
+                    Files.move(temporal, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporal, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temporal);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, String.format("Unable to persist cached model [%s]", target), e);
+        }
+        if (evicted.compareAndSet(false, true)) {
+            evict();
+        }
+    }
+
+    /**
+     * Deletes the persisted POMs that weren't used for {@link #maxAgeMillis}, then the least recently used ones past
+     * {@link #maxEntries}, along with the temporal files left behind by killed builds. Concurrent builds might be
+     * reading an evicted file, which they handle as a miss.
+     */
+    private void evict() {
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        final List<File> kept = new ArrayList<>();
+        for (File file : files) {
+            final long age = now - file.lastModified();
+            if (file.getName().endsWith(".tmp")) {
+                if (age > STALE_TEMPORAL_MILLIS) {
+                    delete(file);
+                }
+            } else if (file.getName().endsWith(".xml")) {
+                if (age > maxAgeMillis) {
+                    delete(file);
+                } else {
+                    kept.add(file);
+                }
+            }
+        }
+        if (kept.size() > maxEntries) {
+            final Map<File, Long> lastModified = new HashMap<>();
+            for (File file : kept) {
+                lastModified.put(file, file.lastModified());
+            }
+            kept.sort(Comparator.comparing(lastModified::get, Comparator.reverseOrder()));
+            for (File file : kept.subList(maxEntries, kept.size())) {
+                delete(file);
+            }
+        }
+    }
+
+    private static void delete(File file) {
+        if (!file.delete() && file.exists()) {
+            LOGGER.fine(String.format("Unable to evict cached model [%s]", file.getAbsolutePath()));
+        }
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    private File getPersistedFile(String fingerprint) {
+        return new File(directory, toHex(sha256(fingerprint.getBytes(StandardCharsets.UTF_8))) + ".xml");
+    }
+
+    /**
+     * @param exchangeJson        the exchange.json file
+     * @param exchangeJsonContent raw content of the {@code exchangeJson} file
+     * @param settings            settings the model is going to be generated with
+     * @return a hash of the content along with every other input that is used while generating the Maven model: the
+     * packager version, the settings and the apivcs configuration the orgId might be guessed from.
+     */
+    static String fingerprint(File exchangeJson, byte[] exchangeJsonContent, ExchangeModelSettings settings) throws IOException {
+        final StringBuilder result = new StringBuilder(toHex(sha256(exchangeJsonContent)));
+        result.append('|').append(ExchangeModelProcessor.PACKAGER_VERSION);
+        result.append('|').append(settings.fingerprint());
+        final File apiVcsConfigFile = ExchangeModelProcessor.getApiVcsConfigFile(exchangeJson.getAbsolutePath());
+        if (apiVcsConfigFile.isFile()) {
+            result.append("|apivcs=").append(toHex(sha256(Files.readAllBytes(apiVcsConfigFile.toPath()))));
+        }
+        return result.toString();
+    }
+
+    private static byte[] sha256(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        final StringBuilder result = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return result.toString();
+    }
+
+    static class Entry {
+
+        final String fingerprint;
+        final Model model;
+        final String xml;
+
+        Entry(String fingerprint, Model model, String xml) {
+            this.fingerprint = fingerprint;
+            this.model = model;
+            this.xml = xml;
+        }
+    }
+}
@@ -7,28 +7,36 @@ import org.apache.maven.model.Model;
 import org.apache.maven.model.Plugin;
 import org.apache.maven.model.PluginExecution;
 import org.apache.maven.model.Repository;
-import org.apache.maven.model.building.FileModelSource;
 import org.apache.maven.model.building.ModelProcessor;
 import org.apache.maven.model.building.ModelSource2;
 import org.apache.maven.model.io.ModelParseException;
 import org.apache.maven.model.io.ModelReader;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
 import org.apache.maven.model.io.xpp3.MavenXpp3Writer;
 import org.apache.maven.model.locator.ModelLocator;
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
-import org.codehaus.plexus.util.FileUtils;
 import org.codehaus.plexus.util.StringUtils;
 import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 import org.mule.maven.exchange.model.ExchangeDependency;
 import org.mule.maven.exchange.model.ExchangeModel;
-import org.mule.maven.exchange.model.ExchangeModelSerializer;
+import org.mule.maven.exchange.model.StreamingExchangeModelSerializer;
 import org.mule.maven.exchange.utils.ApiProjectConstants;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -39,7 +47,7 @@ public class ExchangeModelProcessor implements ModelProcessor {
     public static final String ORG_ID_KEY = "orgId";
     public static final String RAML_FRAGMENT = "raml-fragment";
 
-    private static Logger LOGGER = Logger.getLogger(ExchangeModelProcessor.class.getName());
+    private static final Logger LOGGER = Logger.getLogger(ExchangeModelProcessor.class.getName());
 
     private static final String EXCHANGE_JSON = "exchange.json";
     private static final String TEMPORAL_EXCHANGE_XML = ".exchange.xml";
@@ -50,8 +58,21 @@ public class ExchangeModelProcessor implements ModelProcessor {
 
     public static final String MAVEN_FACADE_V2_SYSTEM_PROPERTY = "-Dexchange.maven.v2.repository.url";
 
+    /**
+     * System property to keep the temporal ".exchange.xml" files once the JVM exits, useful for long running embedders
+     * and for builds that want to avoid re-creating the file on every run.
+     */
+    public static final String KEEP_TEMPORAL_POM_SYSTEM_PROPERTY = "exchange.maven.temporalPom.keep";
+
+    private static final Set<String> TEMPORAL_POMS_TO_DELETE = ConcurrentHashMap.newKeySet();
 
-    private ExchangeModelSerializer objectMapper = new ExchangeModelSerializer();
+    private static final ExchangeModelCache MODEL_CACHE = new ExchangeModelCache();
+
+    /**
+     * One lock per project directory, guarding the generation of the model (which might write the exchange.json file
+     * back) and the write of the temporal ".exchange.xml" file when several modules are read concurrently (-T).
+     */
+    private static final Map<String, Object> PROJECT_LOCKS = new ConcurrentHashMap<>();
 
     @Requirement
     private ModelReader modelReader;
@@ -77,7 +98,10 @@ public class ExchangeModelProcessor implements ModelProcessor {
             pomFile = new File(pomFile.getParentFile(), TEMPORAL_EXCHANGE_XML);
             try {
                 pomFile.createNewFile();
-                pomFile.deleteOnExit();
+                if (!Boolean.getBoolean(KEEP_TEMPORAL_POM_SYSTEM_PROPERTY) && TEMPORAL_POMS_TO_DELETE.add(pomFile.getAbsolutePath())) {
+                    // register the hook just once per file, as Maven locates the same pom several times per build
+                    pomFile.deleteOnExit();
+                }
             } catch (IOException e) {
                 throw new RuntimeException(String.format("error creating temporal `%s` empty file", TEMPORAL_EXCHANGE_XML), e);
             }
@@ -90,7 +114,9 @@ public class ExchangeModelProcessor implements ModelProcessor {
 
     @Override
     public Model read(File file, Map<String, ?> map) throws IOException, ModelParseException {
-        return read(new FileInputStream(file), map);
+        try (InputStream inputStream = new FileInputStream(file)) {
+            return read(inputStream, map);
+        }
     }
 
     @Override
@@ -107,24 +133,21 @@ public class ExchangeModelProcessor implements ModelProcessor {
             final File temporaryExchangeXml = new File(temporalExchangeXml);
             final File exchangeJson = new File(temporaryExchangeXml.getParent(), EXCHANGE_JSON);
 
-            // retrieve the original "exchange.json" file and obtain the Maven model
-            final String exchangeJsonLocation = exchangeJson.getAbsolutePath();
-            final FileInputStream exchangeJsonInputStream = new FileInputStream(exchangeJson);
-            final Model mavenModel = getModel(exchangeJsonLocation, exchangeJsonInputStream);
-
-            // store the reference from the original source of truth, the "exchange.json" file
-            final FileModelSource temporalSourceXml = new FileModelSource(exchangeJson);
-            ((Map) options).put(ModelProcessor.SOURCE, temporalSourceXml);
+            final Model mavenModel;
+            synchronized (getProjectLock(exchangeJson)) {
+                // retrieve the original "exchange.json" file and obtain the Maven model (and its XML representation)
+                final ExchangeModelCache.Entry generated = getCachedModel(exchangeJson);
+                mavenModel = generated.model;
 
-            // serialize the Maven model as XML in the temporal ".exchange.xml" file for proper installation of the .pom
-            final String data = toXmlString(mavenModel);
-            FileUtils.fileWrite(temporaryExchangeXml, data);
+                // serialize the Maven model as XML in the temporal ".exchange.xml" file for proper installation of the .pom
+                // (the caller's options are left untouched, they might be shared with other threads)
+                writeIfChanged(temporaryExchangeXml, generated.xml);
+            }
             mavenModel.setPomFile(temporaryExchangeXml);
 
             // done =]
             return mavenModel;
         } else {
-            //It's a normal maven project with a pom.xml file
             //It's a normal maven project with a pom.xml file
             return modelReader.read(reader, options);
         }
@@ -139,13 +162,47 @@ public class ExchangeModelProcessor implements ModelProcessor {
      */
     public static String toPomXml(File exchangeJson) throws IOException {
         final ExchangeModelProcessor exchangeModelProcessor = new ExchangeModelProcessor();
-        final FileInputStream exchangeJsonInputStream = new FileInputStream(exchangeJson);
-        final Model mavenModel = exchangeModelProcessor.getModel(exchangeJson.getAbsolutePath(), exchangeJsonInputStream);
-        return exchangeModelProcessor.toXmlString(mavenModel);
+        synchronized (getProjectLock(exchangeJson)) {
+            return exchangeModelProcessor.getCachedModel(exchangeJson).xml;
+        }
     }
 
-    private Model getModel(String location, InputStream inputStream) throws IOException {
-        final ExchangeModel model = objectMapper.read(inputStream);
+    /**
+     * Looks up the Maven model of the {@code exchangeJson} in the {@link #MODEL_CACHE}, generating (and caching) it if
+     * the file (or any of the system properties that alter the model) changed since the last time it was read.
+     *
+     * @param exchangeJson the exchange.json file
+     * @return a cache entry with a fresh copy of the model that the caller can modify
+     * @throws IOException if the exchange.json file can't be read
+     */
+    private ExchangeModelCache.Entry getCachedModel(File exchangeJson) throws IOException {
+        final ExchangeModelSettings settings = ExchangeModelSettings.fromSystemProperties();
+        final String location = exchangeJson.getAbsolutePath();
+        final byte[] content = Files.readAllBytes(exchangeJson.toPath());
+        final String fingerprint = ExchangeModelCache.fingerprint(exchangeJson, content, settings);
+        ExchangeModelCache.Entry result = MODEL_CACHE.get(location, fingerprint);
+        if (result == null) {
+            String xml = MODEL_CACHE.load(fingerprint);
+            Model mavenModel = xml != null ? fromXmlString(xml) : null;
+            if (mavenModel == null) {
+                mavenModel = getModel(location, new ByteArrayInputStream(content), settings);
+                xml = toXmlString(mavenModel);
+                if (Arrays.equals(content, Files.readAllBytes(exchangeJson.toPath()))) {
+                    // only persist models whose exchange.json didn't need to be completed by the build
+                    MODEL_CACHE.store(fingerprint, xml);
+                }
+            }
+            result = new ExchangeModelCache.Entry(fingerprint, mavenModel, xml);
+            MODEL_CACHE.put(location, fingerprint, mavenModel, xml);
+        }
+        if (settings.debug) {
+            System.out.println(String.format("Maven Model cache for [%s] (hits: %d, misses: %d)", location, MODEL_CACHE.getHits(), MODEL_CACHE.getMisses()));
+        }
+        return result;
+    }
+
+    private Model getModel(String location, InputStream inputStream, ExchangeModelSettings settings) throws IOException {
+        final ExchangeModel model = StreamingExchangeModelSerializer.PRETTY.read(inputStream);
 
         boolean modified = false;
         if (StringUtils.isBlank(model.getAssetId())) {
@@ -157,7 +214,7 @@ public class ExchangeModelProcessor implements ModelProcessor {
             modified = true;
         }
         if (StringUtils.isBlank(model.getGroupId())) {
-            final String orgId = guessOrgId(location);
+            final String orgId = guessOrgId(location, settings);
             if (orgId != null) {
                 model.setGroupId(orgId);
                 modified = true;
@@ -168,21 +225,20 @@ public class ExchangeModelProcessor implements ModelProcessor {
 
         if (modified) {
             LOGGER.log(Level.WARNING, "[WARNING] exchange.json was modified by the build.");
-            objectMapper.write(model, new File(location));
+            StreamingExchangeModelSerializer.PRETTY.write(model, new File(location));
         }
 
-        final Model mavenModel = toMavenModel(model);
-        if (Boolean.getBoolean("exchange.maven.debug")) {
+        final Model mavenModel = toMavenModel(model, settings);
+        if (settings.debug) {
             System.out.println("Maven Model \n" + toXmlString(mavenModel));
         }
         return mavenModel;
     }
 
-    private String guessOrgId(String location) {
-        String groupId = System.getProperty("groupId");
+    private String guessOrgId(String location, ExchangeModelSettings settings) {
+        String groupId = settings.groupId;
         if (groupId == null) {
-            final File projectFolder = new File(location).getParentFile();
-            final File apiVcsConfigFile = new File(new File(projectFolder, ".apivcs"), "config.properties");
+            final File apiVcsConfigFile = getApiVcsConfigFile(location);
             if (apiVcsConfigFile.exists()) {
                 final Properties properties = new Properties();
                 try (final FileInputStream fileInputStream = new FileInputStream(apiVcsConfigFile)) {
@@ -197,35 +253,103 @@ public class ExchangeModelProcessor implements ModelProcessor {
         return groupId;
     }
 
+    static File getApiVcsConfigFile(String location) {
+        final File projectFolder = new File(location).getParentFile();
+        return new File(new File(projectFolder, ".apivcs"), "config.properties");
+    }
+
+    private static Object getProjectLock(File exchangeJson) {
+        return PROJECT_LOCKS.computeIfAbsent(exchangeJson.getAbsoluteFile().getParent(), path -> new Object());
+    }
+
+    /**
+     * Writes the {@code data} into the {@code file} only if its current content is different, so that file watchers
+     * and incremental tooling are not triggered when the generated POM didn't change. The content is written aside
+     * and then moved, so that readers never see a partially written file.
+     */
+    private static void writeIfChanged(File file, String data) throws IOException {
+        final byte[] newContent = data.getBytes(StandardCharsets.UTF_8);
+        if (file.length() == newContent.length && Arrays.equals(newContent, Files.readAllBytes(file.toPath()))) {
+            return;
+        }
+        final Path temporal = Files.createTempFile(file.getAbsoluteFile().getParentFile().toPath(), TEMPORAL_EXCHANGE_XML, ".tmp");
+        try {
+            Files.write(temporal, newContent);
+            try {
+                Files.move(temporal, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporal, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    private Model fromXmlString(String xml) {
+        try {
+            return new MavenXpp3Reader().read(new StringReader(xml));
+        } catch (IOException | XmlPullParserException e) {
+            LOGGER.log(Level.FINE, "Ignoring cached model that can't be parsed", e);
+            return null;
+        }
+    }
+
     public String toXmlString(Model mavenModel) throws IOException {
         StringWriter stringWriter = new StringWriter();
         new MavenXpp3Writer().write(stringWriter, mavenModel);
         return stringWriter.toString();
     }
 
-    private Model toMavenModel(ExchangeModel model) {
+    private Model toMavenModel(ExchangeModel model, ExchangeModelSettings settings) {
         final Model result = new Model();
         result.setModelVersion("4.0.0");
         result.setArtifactId(model.getAssetId());
         result.setGroupId(model.getGroupId());
         result.setName(model.getName());
         result.setVersion(model.getVersion());
-        result.setRepositories(Lists.newArrayList(createExchangeV3Repository(), createExchangeV2Repository(), createMulesoftReleasesRepository()));
+        result.setRepositories(Lists.newArrayList(createExchangeV3Repository(settings), createExchangeV2Repository(settings), createMulesoftReleasesRepository()));
         final List<Dependency> dependencies = model.getDependencies().stream().map(this::toMavenDependency).collect(Collectors.toList());
         result.setDependencies(dependencies);
         final Build build = new Build();
         build.setDirectory(String.format("${project.basedir}/%s/target", ApiProjectConstants.EXCHANGE_MODULES_TMP));
         build.setSourceDirectory("${project.basedir}");
-        build.addPlugin(createPackagerPlugin(model));
+        final List<String> additionalMains = getAdditionalMains(model);
+        build.addPlugin(createPackagerPlugin(model, additionalMains));
         if (!model.getClassifier().equals(RAML_FRAGMENT)) {
-            build.addPlugin(createConnectorInvokerPlugin("install"));
-            build.addPlugin(createConnectorInvokerPlugin("deploy"));
+            build.addPlugin(createConnectorInvokerPlugin("install", settings, additionalMains));
+            build.addPlugin(createConnectorInvokerPlugin("deploy", settings, additionalMains));
         }
         result.setBuild(build);
         return result;
     }
 
-    private Plugin createConnectorInvokerPlugin(String phase) {
+    /**
+     * @return the main files of the specs bundled along with the "main" one, taken from the
+     * {@link ApiProjectConstants#ADDITIONAL_MAINS} property of the exchange.json (either a list or a single file)
+     */
+    private List<String> getAdditionalMains(ExchangeModel model) {
+        final Object value;
+        try {
+            value = StreamingExchangeModelSerializer.PRETTY.materialize(model.getAdditionalProperties().get(ApiProjectConstants.ADDITIONAL_MAINS));
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, String.format("Ignoring the malformed '%s' property", ApiProjectConstants.ADDITIONAL_MAINS), e);
+            return Collections.emptyList();
+        }
+        if (value instanceof List) {
+            final List<String> result = ((List<?>) value).stream()
+                    .filter(main -> main != null && !StringUtils.isBlank(main.toString()) && !main.toString().equals(model.getMain()))
+                    .map(Object::toString)
+                    .distinct()
+                    .collect(Collectors.toList());
+            ApiProjectConstants.checkSpecIds(result);
+            return result;
+        } else if (value != null && !StringUtils.isBlank(value.toString()) && !value.toString().equals(model.getMain())) {
+            return Collections.singletonList(value.toString());
+        }
+        return Collections.emptyList();
+    }
+
+    private Plugin createConnectorInvokerPlugin(String phase, ExchangeModelSettings settings, List<String> additionalMains) {
         Plugin result = new Plugin();
         result.setGroupId("org.apache.maven.plugins");
         result.setArtifactId("maven-invoker-plugin");
@@ -236,7 +360,7 @@ public class ExchangeModelProcessor implements ModelProcessor {
         addSimpleNodeTo("pom", String.format("${project.basedir}/%s/target/%s/pom.xml",
                 ApiProjectConstants.EXCHANGE_MODULES_TMP,
                 ApiProjectConstants.REST_CONNECT_OUTPUTDIR), configuration);
-        boolean skipInvoker = Boolean.getBoolean(ApiProjectConstants.MAVEN_SKIP_REST_CONNECT);
+        boolean skipInvoker = settings.skipRestConnect;
         addSimpleNodeTo("skipInvocation", Boolean.toString(skipInvoker), configuration);
 
         // make the connector build a little bit faster by skipping docs and extension model generation
@@ -253,6 +377,19 @@ public class ExchangeModelProcessor implements ModelProcessor {
         installConnector.addGoal("run");
         result.addExecution(installConnector);
 
+        for (String additionalMain : additionalMains) {
+            final Xpp3Dom executionConfiguration = new Xpp3Dom("configuration");
+            addSimpleNodeTo("pom", String.format("${project.basedir}/%s/target/%s/pom.xml",
+                    ApiProjectConstants.EXCHANGE_MODULES_TMP,
+                    ApiProjectConstants.getRestConnectOutputDir(additionalMain)), executionConfiguration);
+            PluginExecution installAdditionalConnector = new PluginExecution();
+            installAdditionalConnector.setId("rest-connect-" + phase + "-" + ApiProjectConstants.getSpecId(additionalMain));
+            installAdditionalConnector.setPhase(phase);
+            installAdditionalConnector.addGoal("run");
+            installAdditionalConnector.setConfiguration(executionConfiguration);
+            result.addExecution(installAdditionalConnector);
+        }
+
         return result;
     }
 
@@ -266,7 +403,7 @@ public class ExchangeModelProcessor implements ModelProcessor {
         return name.toLowerCase().replaceAll(" ", "-");
     }
 
-    private Plugin createPackagerPlugin(ExchangeModel model) {
+    private Plugin createPackagerPlugin(ExchangeModel model, List<String> additionalMains) {
         Plugin result = new Plugin();
         result.setGroupId("org.mule.maven.exchange");
         result.setArtifactId("exchange_api_packager");
@@ -274,6 +411,13 @@ public class ExchangeModelProcessor implements ModelProcessor {
         final Xpp3Dom configuration = new Xpp3Dom("configuration");
         addSimpleNodeTo("classifier", model.getClassifier(), configuration);
         addSimpleNodeTo("mainFile", model.getMain(), configuration);
+        if (!additionalMains.isEmpty()) {
+            final Xpp3Dom additionalMainFiles = new Xpp3Dom("additionalMainFiles");
+            for (String additionalMain : additionalMains) {
+                addSimpleNodeTo("additionalMainFile", additionalMain, additionalMainFiles);
+            }
+            configuration.addChild(additionalMainFiles);
+        }
         result.setConfiguration(configuration);
 
         PluginExecution generateSources = new PluginExecution();
@@ -308,8 +452,8 @@ public class ExchangeModelProcessor implements ModelProcessor {
         return result;
     }
 
-    private Repository createExchangeV3Repository() {
-        String url = System.getProperty(MAVEN_FACADE_SYSTEM_PROPERTY, "https://maven.anypoint.mulesoft.com/api/v3/maven");
+    private Repository createExchangeV3Repository(ExchangeModelSettings settings) {
+        String url = settings.exchangeRepositoryUrl;
         Repository repository = new Repository();
         repository.setId("anypoint-exchange-v3");
         repository.setName("Anypoint Exchange");
@@ -318,8 +462,8 @@ public class ExchangeModelProcessor implements ModelProcessor {
         return repository;
     }
 
-    private Repository createExchangeV2Repository() {
-        String url = System.getProperty(MAVEN_FACADE_V2_SYSTEM_PROPERTY, "https://maven.anypoint.mulesoft.com/api/v2/maven");
+    private Repository createExchangeV2Repository(ExchangeModelSettings settings) {
+        String url = settings.exchangeV2RepositoryUrl;
         Repository repository = new Repository();
         repository.setId("anypoint-exchange-v2");
         repository.setName("Anypoint Exchange V2");
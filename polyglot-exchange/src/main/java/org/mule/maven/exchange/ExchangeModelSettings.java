@@ -0,0 +1,52 @@
+package org.mule.maven.exchange;
+
+import org.mule.maven.exchange.utils.ApiProjectConstants;
+
+/**
+ * Immutable snapshot of the system properties that affect the generation of a Maven model from an exchange.json file.
+ * <p>
+ * Taken once per read, so that the fingerprint used by the {@link ExchangeModelCache} and the generated model are
+ * always consistent, even if the properties are modified by other threads (e.g.: embedders) in the middle of a read.
+ */
+final class ExchangeModelSettings {
+
+    private static final String DEFAULT_EXCHANGE_REPOSITORY_URL = "https://maven.anypoint.mulesoft.com/api/v3/maven";
+
+    private static final String DEFAULT_EXCHANGE_V2_REPOSITORY_URL = "https://maven.anypoint.mulesoft.com/api/v2/maven";
+
+    final String groupId;
+
+    final String exchangeRepositoryUrl;
+
+    final String exchangeV2RepositoryUrl;
+
+    final boolean skipRestConnect;
+
+    final boolean debug;
+
+    private ExchangeModelSettings(String groupId, String exchangeRepositoryUrl, String exchangeV2RepositoryUrl, boolean skipRestConnect, boolean debug) {
+        this.groupId = groupId;
+        this.exchangeRepositoryUrl = exchangeRepositoryUrl;
+        this.exchangeV2RepositoryUrl = exchangeV2RepositoryUrl;
+        this.skipRestConnect = skipRestConnect;
+        this.debug = debug;
+    }
+
+    static ExchangeModelSettings fromSystemProperties() {
+        return new ExchangeModelSettings(System.getProperty("groupId"),
+                System.getProperty(ExchangeModelProcessor.MAVEN_FACADE_SYSTEM_PROPERTY, DEFAULT_EXCHANGE_REPOSITORY_URL),
+                System.getProperty(ExchangeModelProcessor.MAVEN_FACADE_V2_SYSTEM_PROPERTY, DEFAULT_EXCHANGE_V2_REPOSITORY_URL),
+                Boolean.getBoolean(ApiProjectConstants.MAVEN_SKIP_REST_CONNECT),
+                Boolean.getBoolean("exchange.maven.debug"));
+    }
+
+    /**
+     * @return a textual representation of every setting that alters the generated model (the debug flag doesn't)
+     */
+    String fingerprint() {
+        return "groupId=" + groupId +
+                "|exchangeRepositoryUrl=" + exchangeRepositoryUrl +
+                "|exchangeV2RepositoryUrl=" + exchangeV2RepositoryUrl +
+                "|skipRestConnect=" + skipRestConnect;
+    }
+}
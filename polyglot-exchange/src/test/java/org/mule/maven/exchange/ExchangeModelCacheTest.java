@@ -0,0 +1,80 @@
+package org.mule.maven.exchange;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ExchangeModelCacheTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void evictModelsNotUsedForTooLong() throws IOException {
+        final File directory = temporaryFolder.newFolder("cache");
+        new ExchangeModelCache(directory).store("old", "<project/>");
+        age(directory, TimeUnit.DAYS.toMillis(31));
+
+        final ExchangeModelCache cache = new ExchangeModelCache(directory);
+        cache.store("new", "<project>new</project>");
+
+        assertNull(cache.load("old"));
+        assertEquals("<project>new</project>", cache.load("new"));
+        assertEquals(1, directory.listFiles().length);
+    }
+
+    @Test
+    public void evictTheLeastRecentlyUsedModels() throws IOException {
+        final File directory = temporaryFolder.newFolder("cache");
+        final ExchangeModelCache populated = new ExchangeModelCache(directory, ExchangeModelCache.MAX_AGE_MILLIS, 2);
+        for (String fingerprint : new String[]{"first", "second", "third"}) {
+            age(directory, 1000);
+            populated.store(fingerprint, "<project>" + fingerprint + "</project>");
+        }
+        // only evicted once per cache
+        assertEquals(3, directory.listFiles().length);
+
+        final ExchangeModelCache cache = new ExchangeModelCache(directory, ExchangeModelCache.MAX_AGE_MILLIS, 2);
+        assertEquals("<project>first</project>", cache.load("first"));
+        cache.store("fourth", "<project>fourth</project>");
+
+        assertEquals(2, directory.listFiles().length);
+        assertEquals("<project>first</project>", cache.load("first"));
+        assertEquals("<project>fourth</project>", cache.load("fourth"));
+        assertNull(cache.load("second"));
+        assertNull(cache.load("third"));
+    }
+
+    @Test
+    public void deleteTemporalFilesOfKilledBuilds() throws IOException {
+        final File directory = temporaryFolder.newFolder("cache");
+        final File stale = new File(directory, "model123.tmp");
+        final File recent = new File(directory, "model456.tmp");
+        assertTrue(stale.createNewFile());
+        assertTrue(stale.setLastModified(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2)));
+        assertTrue(recent.createNewFile());
+
+        new ExchangeModelCache(directory).store("fingerprint", "<project/>");
+
+        assertFalse(stale.exists());
+        assertTrue(recent.exists());
+    }
+
+    /**
+     * Moves the modification time of every file of the {@code directory} back in time.
+     */
+    private static void age(File directory, long millis) {
+        for (File file : directory.listFiles()) {
+            assertTrue(file.setLastModified(file.lastModified() - millis));
+        }
+    }
+}
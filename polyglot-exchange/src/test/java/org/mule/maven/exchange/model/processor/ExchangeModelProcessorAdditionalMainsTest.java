@@ -0,0 +1,69 @@
+package org.mule.maven.exchange.model.processor;
+
+import org.apache.maven.model.building.FileModelSource;
+import org.apache.maven.model.building.ModelProcessor;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mule.maven.exchange.ExchangeModelProcessor;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ExchangeModelProcessorAdditionalMainsTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void failAdditionalMainsWithTheSameSpecId() throws IOException {
+        final File project = createProject("[\"v2/api.raml\", \"v2/api.yaml\"]");
+        try {
+            read(new ExchangeModelProcessor(), project);
+            fail("Both additional mains would generate the same connector");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("v2/api.raml") && e.getMessage().contains("v2/api.yaml"));
+        }
+    }
+
+    @Test
+    public void acceptRepeatedAdditionalMains() throws IOException {
+        final File project = createProject("[\"v2/api.raml\", \"v2/api.raml\", \"v3/api.raml\"]");
+        final String xml = read(new ExchangeModelProcessor(), project);
+        assertTrue(xml, xml.contains("rest-connect-install-v2-api") && xml.contains("rest-connect-install-v3-api"));
+    }
+
+    private String read(ExchangeModelProcessor exchangeModelProcessor, File project) throws IOException {
+        final File temporalPom = exchangeModelProcessor.locatePom(project);
+        final Map<String, Object> options = new HashMap<>();
+        options.put(ModelProcessor.SOURCE, new FileModelSource(temporalPom));
+        try (InputStream inputStream = new FileInputStream(temporalPom)) {
+            return exchangeModelProcessor.toXmlString(exchangeModelProcessor.read(inputStream, options));
+        }
+    }
+
+    private File createProject(String additionalMains) throws IOException {
+        final File project = temporaryFolder.newFolder("project");
+        final String exchangeJson = String.format("{\n" +
+                "  \"main\": \"api.raml\",\n" +
+                "  \"name\": \"Multi Spec API\",\n" +
+                "  \"classifier\": \"raml\",\n" +
+                "  \"tags\": [],\n" +
+                "  \"groupId\": \"org.mule.test\",\n" +
+                "  \"assetId\": \"multi-spec\",\n" +
+                "  \"version\": \"1.0.0\",\n" +
+                "  \"additionalMains\": %s\n" +
+                "}", additionalMains);
+        Files.write(new File(project, "exchange.json").toPath(), exchangeJson.getBytes(StandardCharsets.UTF_8));
+        return project;
+    }
+}
@@ -0,0 +1,117 @@
+package org.mule.maven.exchange.model.processor;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.model.building.FileModelSource;
+import org.apache.maven.model.building.ModelProcessor;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mule.maven.exchange.ExchangeModelProcessor;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ExchangeModelProcessorConcurrencyTest {
+
+    private static final int PROJECTS = 200;
+    private static final int READS_PER_PROJECT = 5;
+    private static final int THREADS = 16;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void generateModelsConcurrently() throws Exception {
+        final List<File> projects = new ArrayList<>();
+        for (int i = 0; i < PROJECTS; i++) {
+            projects.add(createProject(i));
+        }
+
+        // the same processor is shared by every thread, as Maven does with the Plexus component
+        final ExchangeModelProcessor exchangeModelProcessor = new ExchangeModelProcessor();
+        final List<Callable<Map.Entry<File, String>>> reads = new ArrayList<>();
+        for (File project : projects) {
+            for (int i = 0; i < READS_PER_PROJECT; i++) {
+                reads.add(() -> new AbstractMap.SimpleEntry<>(project, read(exchangeModelProcessor, project)));
+            }
+        }
+        Collections.shuffle(reads, new Random(42));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final Map<File, Set<String>> results = new HashMap<>();
+        try {
+            for (Future<Map.Entry<File, String>> future : executor.invokeAll(reads)) {
+                final Map.Entry<File, String> result = future.get();
+                results.computeIfAbsent(result.getKey(), project -> new HashSet<>()).add(result.getValue());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(PROJECTS, results.size());
+        for (int i = 0; i < PROJECTS; i++) {
+            final File project = projects.get(i);
+            final Set<String> xmls = results.get(project);
+            assertEquals("All the reads of " + project + " must generate the same model", 1, xmls.size());
+
+            final String xml = xmls.iterator().next();
+            final File temporalPom = exchangeModelProcessor.locatePom(project);
+            assertEquals(xml, new String(Files.readAllBytes(temporalPom.toPath()), StandardCharsets.UTF_8));
+
+            try (FileReader reader = new FileReader(temporalPom)) {
+                final Model model = new MavenXpp3Reader().read(reader);
+                assertEquals("org.mule.test", model.getGroupId());
+                assertEquals("asset-" + i, model.getArtifactId());
+                assertEquals("1.0." + i, model.getVersion());
+                assertEquals(i % 3, model.getDependencies().size());
+            }
+        }
+    }
+
+    private String read(ExchangeModelProcessor exchangeModelProcessor, File project) throws IOException {
+        final File temporalPom = exchangeModelProcessor.locatePom(project);
+        final FileModelSource fileModelSource = new FileModelSource(temporalPom);
+        final Map<String, Object> options = new HashMap<>();
+        options.put(ModelProcessor.SOURCE, fileModelSource);
+        try (InputStream inputStream = new FileInputStream(temporalPom)) {
+            final Model read = exchangeModelProcessor.read(inputStream, options);
+            assertSame("The options of the caller must not be modified", fileModelSource, options.get(ModelProcessor.SOURCE));
+            return exchangeModelProcessor.toXmlString(read);
+        }
+    }
+
+    private File createProject(int index) throws IOException {
+        final File project = temporaryFolder.newFolder("project-" + index);
+        final StringBuilder dependencies = new StringBuilder();
+        for (int i = 0; i < index % 3; i++) {
+            if (i > 0) {
+                dependencies.append(",");
+            }
+            dependencies.append(String.format("{\"groupId\": \"org.mule.test\", \"assetId\": \"fragment-%d\", \"version\": \"1.0.%d\"}", i, i));
+        }
+        final String exchangeJson = String.format("{\n" +
+                "  \"main\": \"api-%d.raml\",\n" +
+                "  \"name\": \"Api %d\",\n" +
+                "  \"classifier\": \"raml\",\n" +
+                "  \"tags\": [],\n" +
+                "  \"dependencies\": [%s],\n" +
+                "  \"groupId\": \"org.mule.test\",\n" +
+                "  \"assetId\": \"asset-%d\",\n" +
+                "  \"version\": \"1.0.%d\",\n" +
+                "  \"apiVersion\": \"v1\"\n" +
+                "}", index, index, dependencies, index, index);
+        Files.write(new File(project, "exchange.json").toPath(), exchangeJson.getBytes(StandardCharsets.UTF_8));
+        return project;
+    }
+}
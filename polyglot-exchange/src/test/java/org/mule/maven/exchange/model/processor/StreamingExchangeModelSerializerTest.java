@@ -0,0 +1,121 @@
+package org.mule.maven.exchange.model.processor;
+
+import org.junit.Test;
+import org.mule.maven.exchange.model.ExchangeModel;
+import org.mule.maven.exchange.model.ExchangeModelSerializer;
+import org.mule.maven.exchange.model.RawJsonValue;
+import org.mule.maven.exchange.model.StreamingExchangeModelSerializer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StreamingExchangeModelSerializerTest {
+
+    private static final String UNKNOWN_PROPERTIES = "{\n" +
+            "  \"main\": \"api.raml\",\n" +
+            "  \"name\": \"Unknown \\\"properties\\\" \\u00e1\",\n" +
+            "  \"classifier\": \"raml\",\n" +
+            "  \"tags\": [\"a\", \"b\"],\n" +
+            "  \"owner\": {\"name\" :  \"me\", \"ids\": [1, 2.5, -3e2, true, null, {\"deep\": [[]]}]},\n" +
+            "  \"dependencies\": [\n" +
+            "    {\"groupId\": \"g\", \"assetId\": \"a\", \"version\": \"1.0.0\", \"packaging\": {\"type\": \"zip\"}, \"optional\": false}\n" +
+            "  ],\n" +
+            "  \"groupId\": \"g\",\n" +
+            "  \"assetId\": \"unknown\",\n" +
+            "  \"version\": \"1.0.0\",\n" +
+            "  \"apiVersion\": \"v1\",\n" +
+            "  \"metadata\": {\"projectId\": \"p\", \"branchId\": \"master\", \"commitId\": \"c\", \"extra\": [ {}, [] ]},\n" +
+            "  \"additionalMains\": [\"v2/api.raml\"],\n" +
+            "  \"count\": 12345678901234,\n" +
+            "  \"empty\": null\n" +
+            "}";
+
+    @Test
+    public void writeTheSameAsDatabindForEveryFixture() throws IOException {
+        final List<File> fixtures = getFixtures();
+        assertFalse("No exchange.json fixtures found", fixtures.isEmpty());
+        for (File fixture : fixtures) {
+            assertSameOutput(fixture.getPath(), new String(Files.readAllBytes(fixture.toPath()), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void writeTheSameAsDatabindWithUnknownProperties() throws IOException {
+        assertSameOutput("unknown properties", UNKNOWN_PROPERTIES);
+    }
+
+    @Test
+    public void keepUnknownStructuresAsTheyAreInTheInput() throws IOException {
+        final ExchangeModel lazy = StreamingExchangeModelSerializer.COMPACT.read(new StringReader(UNKNOWN_PROPERTIES));
+        final ExchangeModel eager = new StreamingExchangeModelSerializer(false, false).read(new StringReader(UNKNOWN_PROPERTIES));
+
+        final Object owner = lazy.getAdditionalProperties().get("owner");
+        assertEquals(new RawJsonValue("{\"name\" :  \"me\", \"ids\": [1, 2.5, -3e2, true, null, {\"deep\": [[]]}]}"), owner);
+        assertEquals(new RawJsonValue("[ {}, [] ]"), lazy.getMetadata().getAdditionalProperties().get("extra"));
+        assertEquals(new RawJsonValue("{\"type\": \"zip\"}"), lazy.getDependencies().get(0).getAdditionalProperties().get("packaging"));
+        // scalars are not worth deferring
+        assertEquals(12345678901234L, lazy.getAdditionalProperties().get("count"));
+
+        assertTrue(eager.getAdditionalProperties().get("owner") instanceof Map);
+        assertEquals(eager.getAdditionalProperties().get("owner"), StreamingExchangeModelSerializer.COMPACT.materialize(owner));
+        assertEquals(eager.getAdditionalProperties().get("additionalMains"),
+                StreamingExchangeModelSerializer.COMPACT.materialize(lazy.getAdditionalProperties().get("additionalMains")));
+    }
+
+    private static void assertSameOutput(String description, String json) throws IOException {
+        for (boolean indent : new boolean[]{true, false}) {
+            final String expected = write(new ExchangeModelSerializer(indent), new ExchangeModelSerializer().read(new StringReader(json)));
+            for (boolean lazy : new boolean[]{true, false}) {
+                final StreamingExchangeModelSerializer serializer = new StreamingExchangeModelSerializer(indent, lazy);
+                final String actual = write(serializer, serializer.read(new StringReader(json)));
+                assertEquals(String.format("%s (indent: %s, lazy: %s)", description, indent, lazy), expected, actual);
+            }
+        }
+    }
+
+    private static String write(ExchangeModelSerializer serializer, ExchangeModel model) throws IOException {
+        final StringWriter writer = new StringWriter();
+        serializer.write(model, writer);
+        return writer.toString();
+    }
+
+    private static String write(StreamingExchangeModelSerializer serializer, ExchangeModel model) throws IOException {
+        final StringWriter writer = new StringWriter();
+        serializer.write(model, writer);
+        return writer.toString();
+    }
+
+    /**
+     * @return the exchange.json of every fixture of {@link ExchangeModelProcessorTest}
+     */
+    private static List<File> getFixtures() throws IOException {
+        final String path = StreamingExchangeModelSerializerTest.class.getPackage().getName().replace('.', '/');
+        final Enumeration<URL> resources = StreamingExchangeModelSerializerTest.class.getClassLoader().getResources(path);
+        final List<File> fixtures = new ArrayList<>();
+        while (resources.hasMoreElements()) {
+            final File[] files = new File(resources.nextElement().getFile()).listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    final File exchangeJson = new File(file, "exchange.json");
+                    if (exchangeJson.isFile()) {
+                        fixtures.add(exchangeJson);
+                    }
+                }
+            }
+        }
+        return fixtures;
+    }
+}